@@ -51,6 +51,30 @@ CREATE TABLE `favorite_recipe` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `food_alert_event`
+--
+
+DROP TABLE IF EXISTS `food_alert_event`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `food_alert_event` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '事件ID，即 SSE 的事件 id',
+  `user_id` bigint NOT NULL COMMENT '食材所有者',
+  `family_id` bigint DEFAULT NULL COMMENT '食材所在家庭组',
+  `item_id` bigint NOT NULL COMMENT '食材ID',
+  `name` varchar(100) NOT NULL COMMENT '食材名称',
+  `old_status` varchar(20) DEFAULT NULL COMMENT '变化前状态，新增的食材为空',
+  `new_status` varchar(20) NOT NULL COMMENT '变化后状态',
+  `expiry_date` date DEFAULT NULL,
+  `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  KEY `idx_user_id` (`user_id`,`id`),
+  KEY `idx_family_id` (`family_id`,`id`),
+  KEY `idx_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='食材状态变化事件，各节点轮询后推送给本节点的提醒连接';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `food_item`
 --
@@ -70,19 +94,76 @@ CREATE TABLE `food_item` (
   `min_quantity` decimal(10,2) DEFAULT NULL COMMENT '保底数量（可选）',
   `purchase_date` date DEFAULT NULL,
   `expiry_date` date NOT NULL,
+  `near_expiry_date` date DEFAULT NULL COMMENT '进入临期的日期',
+  `expired_date` date DEFAULT NULL COMMENT '进入过期的日期',
   `image_url` varchar(255) DEFAULT NULL COMMENT 'URL',
   `status` enum('NORMAL','NEAR_EXPIRY','EXPIRED','INSUFFICIENT') DEFAULT 'NORMAL' COMMENT '状态',
   `is_deleted` tinyint DEFAULT '0',
   `created_at` datetime DEFAULT CURRENT_TIMESTAMP,
   `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `version` int NOT NULL DEFAULT '0' COMMENT '乐观锁版本号',
   PRIMARY KEY (`id`),
-  KEY `idx_user_id` (`user_id`),
-  KEY `idx_family_id` (`family_id`),
+  KEY `idx_user_status_expiry` (`user_id`,`is_deleted`,`status`,`expiry_date`),
+  KEY `idx_user_created` (`user_id`,`is_deleted`,`created_at`),
+  KEY `idx_user_updated` (`user_id`,`updated_at`),
+  KEY `idx_family_id` (`family_id`,`is_deleted`,`created_at`),
+  KEY `idx_family_status_expiry` (`family_id`,`is_deleted`,`status`,`expiry_date`),
   KEY `idx_expiry_date` (`expiry_date`),
-  KEY `idx_status` (`status`)
+  KEY `idx_status_near_expiry` (`status`,`near_expiry_date`),
+  KEY `idx_status_expired` (`status`,`expired_date`),
+  KEY `idx_expired_date` (`expired_date`)
 ) ENGINE=InnoDB AUTO_INCREMENT=85 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `food_stats`
+--
+
+DROP TABLE IF EXISTS `food_stats`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `food_stats` (
+  `scope_type` enum('USER','FAMILY') NOT NULL COMMENT '统计范围',
+  `scope_id` bigint NOT NULL COMMENT '用户ID或家庭组ID',
+  `category` varchar(50) NOT NULL DEFAULT '' COMMENT '分类，未分类为空串',
+  `item_count` int NOT NULL DEFAULT '0',
+  `near_expiry_count` int NOT NULL DEFAULT '0',
+  `expired_count` int NOT NULL DEFAULT '0',
+  `insufficient_count` int NOT NULL DEFAULT '0',
+  PRIMARY KEY (`scope_type`,`scope_id`,`category`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='食材统计计数';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `inventory_version`
+--
+
+DROP TABLE IF EXISTS `inventory_version`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `inventory_version` (
+  `scope_type` enum('USER','FAMILY','GLOBAL') NOT NULL COMMENT '范围，GLOBAL 表示影响所有库存的批量变更',
+  `scope_id` bigint NOT NULL COMMENT '用户ID或家庭组ID，GLOBAL 为 0',
+  `version` bigint NOT NULL DEFAULT '0',
+  PRIMARY KEY (`scope_type`,`scope_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='库存版本号';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `job_lock`
+--
+
+DROP TABLE IF EXISTS `job_lock`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `job_lock` (
+  `name` varchar(64) NOT NULL COMMENT '任务名',
+  `locked_until` datetime NOT NULL COMMENT '租约到期时间',
+  `locked_by` varchar(64) NOT NULL COMMENT '持有者',
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='定时任务锁';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `recipe`
 --
@@ -102,6 +183,8 @@ CREATE TABLE `recipe` (
   `difficulty` enum('BEGINNER','INTERMEDIATE','ADVANCED') DEFAULT 'INTERMEDIATE' COMMENT '难度等级',
   `cuisine_type` varchar(50) DEFAULT NULL COMMENT '菜系分类',
   `servings` tinyint unsigned DEFAULT '1' COMMENT '份量（几人份）',
+  `created_by` bigint DEFAULT NULL COMMENT '创建者，内置菜谱为空',
+  `version` int NOT NULL DEFAULT '0' COMMENT '乐观锁版本号',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=19 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -118,7 +201,8 @@ CREATE TABLE `recipe_ingredient` (
   `recipe_id` bigint NOT NULL COMMENT 'ID',
   `ingredient_name` varchar(100) NOT NULL,
   `amount` varchar(50) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_recipe_id` (`recipe_id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=39 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -139,9 +223,11 @@ CREATE TABLE `user` (
   `status` tinyint DEFAULT '1' COMMENT '1- 0-',
   `created_at` datetime DEFAULT CURRENT_TIMESTAMP,
   `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `last_login_at` datetime DEFAULT NULL COMMENT '最近登录时间',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_phone` (`phone`),
-  UNIQUE KEY `uk_email` (`email`)
+  UNIQUE KEY `uk_email` (`email`),
+  KEY `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='App';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
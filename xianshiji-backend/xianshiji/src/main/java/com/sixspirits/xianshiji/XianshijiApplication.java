@@ -1,21 +1,43 @@
 package com.sixspirits.xianshiji;
 
+import com.sixspirits.xianshiji.avatar.UploadFileHandler;
+import com.sixspirits.xianshiji.security.UserIdGuard;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
 
 @SpringBootApplication
 public class XianshijiApplication implements WebMvcConfigurer {
 
+	private final UserIdGuard userIdGuard;
+
+	public XianshijiApplication(UserIdGuard userIdGuard) {
+		this.userIdGuard = userIdGuard;
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(XianshijiApplication.class, args);
 	}
 
+	/**
+	 * 上传文件由 UploadFileHandler 以零拷贝方式下发，取代默认的静态资源处理
+	 */
+	@Bean
+	public SimpleUrlHandlerMapping uploadHandlerMapping(UploadFileHandler uploadFileHandler) {
+		SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping(Map.of("/uploads/**", uploadFileHandler));
+		mapping.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return mapping;
+	}
+
 	@Override
-	public void addResourceHandlers(ResourceHandlerRegistry registry) {
-		registry.addResourceHandler("/uploads/**")
-				.addResourceLocations("file:uploads/");
+	public void addInterceptors(InterceptorRegistry registry) {
+		// 校验路径和查询参数里的 userId
+		registry.addInterceptor(userIdGuard);
 	}
 }
@@ -0,0 +1,109 @@
+package com.sixspirits.xianshiji.alert;
+
+import com.sixspirits.xianshiji.entity.FoodAlertEvent;
+import com.sixspirits.xianshiji.event.FoodStatusChangedEvent;
+import com.sixspirits.xianshiji.mapper.FoodAlertEventMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 食材提醒的跨节点转发：状态变化与业务写入在同一事务中写进 food_alert_event，
+ * 每个节点轮询新增的行，交给本节点的 AlertStreamRegistry 推送。
+ * 事件 id 取自自增主键，重启和换节点后仍然递增，客户端可以一直用 Last-Event-ID 续传。
+ */
+@Component
+public class AlertEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertEventRelay.class);
+
+    private static final int POLL_BATCH = 500;
+    // 自增 id 在插入时分配、提交后才可见，较小的 id 可能晚于较大的 id 出现；
+    // 轮询时跳过的 id 在这段时间内继续补查，超时视为回滚或已删除
+    private static final long GAP_TIMEOUT_MILLIS = 60_000L;
+    private static final int MAX_GAPS = 1_000;
+    private static final int RETENTION_HOURS = 24;
+    private static final int PURGE_BATCH = 5_000;
+
+    private final FoodAlertEventMapper foodAlertEventMapper;
+    private final AlertStreamRegistry alertStreamRegistry;
+
+    // 以下字段只在轮询线程上访问
+    private long lastSeenId = -1;
+    // 跳过的 id -> 发现的时间
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    public AlertEventRelay(FoodAlertEventMapper foodAlertEventMapper, AlertStreamRegistry alertStreamRegistry) {
+        this.foodAlertEventMapper = foodAlertEventMapper;
+        this.alertStreamRegistry = alertStreamRegistry;
+    }
+
+    /**
+     * 与业务写入一起提交，提交失败时事件也不会出现；写入失败只记日志，不影响业务事务
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onFoodStatusChanged(FoodStatusChangedEvent event) {
+        try {
+            foodAlertEventMapper.insert(FoodAlertEvent.of(event));
+        } catch (Exception e) {
+            log.warn("记录食材 {} 的状态变化失败: {}", event.getItemId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${xianshiji.alerts.poll-delay:5000}",
+            fixedDelayString = "${xianshiji.alerts.poll-interval:1000}")
+    public void poll() {
+        try {
+            if (lastSeenId < 0) {
+                // 启动时从当前位置开始，之前的事件由客户端重连时按 Last-Event-ID 补发
+                lastSeenId = foodAlertEventMapper.findMaxId();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (!gaps.isEmpty()) {
+                for (FoodAlertEvent event : foodAlertEventMapper.findByIds(new ArrayList<>(gaps.keySet()))) {
+                    gaps.remove(event.getId());
+                    alertStreamRegistry.dispatch(event);
+                }
+                gaps.values().removeIf(noticedAt -> now - noticedAt > GAP_TIMEOUT_MILLIS);
+            }
+            List<FoodAlertEvent> events;
+            do {
+                events = foodAlertEventMapper.findAfter(lastSeenId, POLL_BATCH);
+                for (FoodAlertEvent event : events) {
+                    for (long id = lastSeenId + 1; id < event.getId() && gaps.size() < MAX_GAPS; id++) {
+                        gaps.put(id, now);
+                    }
+                    lastSeenId = event.getId();
+                    alertStreamRegistry.dispatch(event);
+                }
+            } while (events.size() == POLL_BATCH);
+        } catch (Exception e) {
+            log.warn("轮询提醒事件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 事件只用于推送和断线补发，保留一天；各节点都会执行，删除是幂等的
+     */
+    @Scheduled(initialDelayString = "${xianshiji.alerts.purge-delay:600000}", fixedDelay = 3_600_000L)
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minusHours(RETENTION_HOURS);
+        try {
+            int deleted;
+            do {
+                deleted = foodAlertEventMapper.deleteBefore(before, PURGE_BATCH);
+            } while (deleted == PURGE_BATCH);
+        } catch (Exception e) {
+            log.warn("清理提醒事件失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.sixspirits.xianshiji.alert;
+
+import com.sixspirits.xianshiji.cache.FamilyMemberships;
+import com.sixspirits.xianshiji.entity.Family;
+import com.sixspirits.xianshiji.entity.FoodAlertEvent;
+import com.sixspirits.xianshiji.mapper.FoodAlertEventMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 食材提醒的 SSE 连接登记表。
+ * 连接由 Servlet 异步请求承载，空闲时不占用线程。事件由 AlertEventRelay 从 food_alert_event 轮询后交给这里，
+ * 家庭组共享的食材推送给该家庭组的全部成员。
+ * 每个连接有自己的发送队列，同一时刻最多一个发送线程在处理，事件按交付顺序到达；
+ * 发送积压过多的慢客户端会被断开，重连时按 Last-Event-ID 从表中补发。
+ */
+@Component
+public class AlertStreamRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertStreamRegistry.class);
+
+    private static final int MAX_CONNECTIONS = 20_000;
+    // 同一用户超过该数量时关闭最早的连接（多为客户端没有正常断开的旧连接）
+    private static final int MAX_CONNECTIONS_PER_USER = 5;
+    // 单个连接积压的待发送事件上限
+    private static final int MAX_PENDING_PER_CONNECTION = 200;
+    // 到期后客户端自动重连，顺便回收异常断开却没有报错的连接
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    private static final long HEARTBEAT_SECONDS = 25;
+    private static final int REPLAY_SIZE = 50;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // 每个连接同时最多占一个任务，队列长度按连接数上限即可
+    private final ThreadPoolExecutor sendExecutor = new ThreadPoolExecutor(
+            2, Math.max(2, Runtime.getRuntime().availableProcessors()), 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAX_CONNECTIONS), r -> {
+                Thread thread = new Thread(r, "alert-stream-send");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "alert-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FamilyMemberships familyMemberships;
+    private final FoodAlertEventMapper foodAlertEventMapper;
+
+    public AlertStreamRegistry(FamilyMemberships familyMemberships, FoodAlertEventMapper foodAlertEventMapper) {
+        this.familyMemberships = familyMemberships;
+        this.foodAlertEventMapper = foodAlertEventMapper;
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * 建立提醒连接
+     * @param lastEventId 客户端重连时带上的 Last-Event-ID，之后的事件会先补发（可能与实时推送重复，按 id 去重）
+     * @throws IllegalStateException 连接数已满
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        if (connectionCount.incrementAndGet() > MAX_CONNECTIONS) {
+            connectionCount.decrementAndGet();
+            throw new IllegalStateException("提醒连接数已满，请稍后重试");
+        }
+        long after = parseEventId(lastEventId);
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(EMITTER_TIMEOUT_MILLIS), after >= 0);
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+
+        // 增删都在 compute 里完成，避免加入一个刚被移出登记表的空列表
+        List<Subscriber> list = subscribers.compute(userId, (id, current) -> {
+            List<Subscriber> result = current != null ? current : new CopyOnWriteArrayList<>();
+            result.add(subscriber);
+            return result;
+        });
+        while (list.size() > MAX_CONNECTIONS_PER_USER) {
+            close(list.get(0));
+        }
+
+        if (after >= 0) {
+            replay(subscriber, after);
+        }
+        return emitter;
+    }
+
+    /**
+     * 推送给本节点上该事件的接收者，由 AlertEventRelay 在轮询线程上按 id 顺序调用
+     */
+    public void dispatch(FoodAlertEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Long userId : recipients(event)) {
+            List<Subscriber> list = subscribers.get(userId);
+            if (list == null) {
+                continue;
+            }
+            for (Subscriber subscriber : list) {
+                offer(subscriber, event);
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                subscriber.emitter.complete();
+            }
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 先查出断线期间的事件放进发送队列，查询期间到达的实时事件暂存，补发之后去重再接上
+     */
+    private void replay(Subscriber subscriber, long after) {
+        List<FoodAlertEvent> missed;
+        try {
+            List<Long> familyIds = new ArrayList<>();
+            for (Family family : familyMemberships.getFamilies(subscriber.userId)) {
+                familyIds.add(family.getId());
+            }
+            missed = foodAlertEventMapper.findForUser(subscriber.userId, familyIds, after, REPLAY_SIZE);
+        } catch (Exception e) {
+            log.warn("补发用户 {} 的提醒失败: {}", subscriber.userId, e.getMessage());
+            missed = List.of();
+        }
+        synchronized (subscriber) {
+            Set<Long> replayed = new HashSet<>();
+            for (FoodAlertEvent event : missed) {
+                replayed.add(event.getId());
+                enqueue(subscriber, toSse(event));
+            }
+            for (FoodAlertEvent event : subscriber.held) {
+                if (!replayed.contains(event.getId())) {
+                    enqueue(subscriber, toSse(event));
+                }
+            }
+            subscriber.held = null;
+        }
+    }
+
+    private void offer(Subscriber subscriber, FoodAlertEvent event) {
+        synchronized (subscriber) {
+            if (subscriber.held != null) {
+                subscriber.held.add(event);
+                return;
+            }
+            enqueue(subscriber, toSse(event));
+        }
+    }
+
+    private void heartbeat() {
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                enqueue(subscriber, SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (subscriber.pendingCount.incrementAndGet() > MAX_PENDING_PER_CONNECTION) {
+            log.warn("用户 {} 的提醒连接积压过多，断开后由客户端重连补发", subscriber.userId);
+            close(subscriber);
+            return;
+        }
+        subscriber.pending.add(event);
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sendExecutor.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                close(subscriber);
+            }
+        }
+    }
+
+    /**
+     * 依次发送队列中的事件；退出前再检查一次，避免在置回标志之前入队的事件没人发送
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.pending.poll()) != null) {
+                subscriber.pendingCount.decrementAndGet();
+                try {
+                    subscriber.emitter.send(event);
+                } catch (Exception e) {
+                    // draining 保持为 true，已断开的连接不再调度
+                    unregister(subscriber);
+                    subscriber.pending.clear();
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.pending.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(FoodAlertEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("itemId", event.getItemId());
+        payload.put("familyId", event.getFamilyId());
+        payload.put("name", event.getName());
+        payload.put("oldStatus", event.getOldStatus());
+        payload.put("newStatus", event.getNewStatus());
+        payload.put("expiryDate", event.getExpiryDate());
+        return SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name("status")
+                .data(payload, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * 食材所有者，以及食材所在家庭组的全部成员
+     */
+    private Set<Long> recipients(FoodAlertEvent event) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        userIds.add(event.getUserId());
+        if (event.getFamilyId() != null) {
+            try {
+                userIds.addAll(familyMemberships.getMemberIds(event.getFamilyId()));
+            } catch (Exception e) {
+                // 查不到成员时至少推送给所有者
+                log.warn("查询家庭组 {} 的成员失败: {}", event.getFamilyId(), e.getMessage());
+            }
+        }
+        return userIds;
+    }
+
+    private void close(Subscriber subscriber) {
+        unregister(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void unregister(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        // 补发完成前到达的实时事件，补发完成后为 null；由 synchronized (subscriber) 保护
+        private List<FoodAlertEvent> held;
+
+        private Subscriber(Long userId, SseEmitter emitter, boolean replaying) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.held = replaying ? new ArrayList<>() : null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.sixspirits.xianshiji.avatar;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 头像文件的保存与缩略图：原图按文件头识别类型后落盘，原子改名到位即返回；
+ * 64/128/256 的正方形 JPEG 缩略图在后台线程池生成，命名为 {原图名}_{尺寸}.jpg。
+ * 缩略图还没生成或生成失败（如 WebP，JDK 无法解码）时，按尺寸取头像会回退到原图。
+ */
+@Component
+public class AvatarStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarStorage.class);
+
+    public static final Path AVATAR_DIR = Paths.get("uploads", "avatars");
+    public static final String URL_PREFIX = "/uploads/avatars/";
+    public static final int[] VARIANT_SIZES = {64, 128, 256};
+
+    // 与 spring.servlet.multipart.max-file-size 一致，容器在接收时就会拦截超限的上传
+    public static final long MAX_BYTES = 5 * 1024 * 1024;
+    // 解码前先看尺寸，避免小文件声明超大分辨率占满内存
+    private static final int MAX_DIMENSION = 8000;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    // 原图文件名：UUID + 扩展名，缩略图只为这种文件生成和查找
+    private static final Pattern ORIGINAL_NAME = Pattern.compile("([0-9a-f\\-]{36})\\.(jpg|png|gif|webp)");
+
+    private final ThreadPoolExecutor thumbnailExecutor = new ThreadPoolExecutor(
+            2, 2, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(100), r -> {
+                Thread thread = new Thread(r, "avatar-thumbnail");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * 保存上传的头像原图，缩略图交给后台生成
+     * @return 原图的访问路径
+     * @throws IllegalArgumentException 文件过大或不是支持的图片格式
+     */
+    public String store(MultipartFile file) throws IOException {
+        if (file.getSize() > MAX_BYTES) {
+            throw new IllegalArgumentException("文件不能超过 " + MAX_BYTES / 1024 / 1024 + "MB");
+        }
+        String extension;
+        try (InputStream in = file.getInputStream()) {
+            extension = sniffExtension(in.readNBytes(12));
+        }
+        if (extension == null) {
+            throw new IllegalArgumentException("只支持 JPEG、PNG、GIF、WebP 格式的图片");
+        }
+
+        Files.createDirectories(AVATAR_DIR);
+        String filename = UUID.randomUUID() + "." + extension;
+        Path target = AVATAR_DIR.resolve(filename);
+        // 先写临时文件再原子改名，读到的头像文件总是完整的；
+        // 上传已缓存在磁盘上时 transferTo 只是移动。目标需为绝对路径且不存在，否则容器会写到自己的临时目录
+        Path temp = AVATAR_DIR.resolve(".upload-" + filename + ".tmp").toAbsolutePath();
+        try {
+            file.transferTo(temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        try {
+            thumbnailExecutor.execute(() -> generateVariants(target));
+        } catch (RejectedExecutionException e) {
+            // 队列满时不生成缩略图，按尺寸取头像时回退到原图
+            log.warn("缩略图队列已满，跳过 {}", filename);
+        }
+        return URL_PREFIX + filename;
+    }
+
+    /**
+     * 按请求的显示尺寸找缩略图：取不小于该尺寸的最小一档，文件是否已生成由调用方判断
+     * @param filename avatars 目录下的原图文件名
+     * @return 缩略图文件名；原图不是本类保存的或尺寸超过最大一档时返回 null
+     */
+    public String variantFor(String filename, int size) {
+        Matcher matcher = ORIGINAL_NAME.matcher(filename);
+        if (!matcher.matches() || size <= 0) {
+            return null;
+        }
+        for (int variantSize : VARIANT_SIZES) {
+            if (variantSize >= size) {
+                return variantName(matcher.group(1), variantSize);
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailExecutor.shutdownNow();
+    }
+
+    private void generateVariants(Path original) {
+        Matcher matcher = ORIGINAL_NAME.matcher(original.getFileName().toString());
+        if (!matcher.matches()) {
+            return;
+        }
+        try {
+            BufferedImage image = read(original);
+            if (image == null) {
+                return;
+            }
+            // 居中裁成正方形，各档缩略图都从它缩放
+            int side = Math.min(image.getWidth(), image.getHeight());
+            BufferedImage square = image.getSubimage(
+                    (image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+            for (int size : VARIANT_SIZES) {
+                writeJpeg(scale(square, Math.min(size, side)), AVATAR_DIR.resolve(variantName(matcher.group(1), size)));
+            }
+        } catch (Exception e) {
+            log.warn("生成头像缩略图失败 {}: {}", original.getFileName(), e.getMessage());
+        }
+    }
+
+    private static BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if (reader.getWidth(0) > MAX_DIMENSION || reader.getHeight(0) > MAX_DIMENSION) {
+                    log.warn("头像分辨率过大，不生成缩略图: {}", file.getFileName());
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        // JPEG 不支持透明，统一画到 RGB 画布上
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, size, size);
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = AVATAR_DIR.resolve("." + target.getFileName() + ".tmp");
+        // ImageOutputStream 不会截断已有文件，先清掉上次异常退出留下的临时文件
+        Files.deleteIfExists(temp);
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String variantName(String id, int size) {
+        return id + "_" + size + ".jpg";
+    }
+
+    /**
+     * 按文件头识别图片类型，不信任客户端给的文件名和 Content-Type
+     */
+    static String sniffExtension(byte[] header) {
+        if (header.length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8
+                && (header[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (header.length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N'
+                && header[3] == 'G' && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A
+                && header[7] == 0x0A) {
+            return "png";
+        }
+        if (header.length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "gif";
+        }
+        if (header.length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+}
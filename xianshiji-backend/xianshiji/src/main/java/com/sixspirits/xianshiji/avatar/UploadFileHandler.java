@@ -0,0 +1,251 @@
+package com.sixspirits.xianshiji.avatar;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * /uploads/** 的文件下载：Tomcat 支持时交给 sendfile，否则用 FileChannel.transferTo，
+ * 文件内容不经过堆内存。上传的文件名都是 UUID、写入后不再修改，
+ * 长度和修改时间缓存在内存里，响应带一年的 immutable 缓存头，支持 If-Modified-Since 和单段 Range。
+ * 头像可带 ?size= 取缩略图，缩略图未生成时回退到原图，此时只短时间缓存。
+ */
+@Component
+public class UploadFileHandler implements HttpRequestHandler {
+
+    public static final Path UPLOAD_ROOT = Paths.get("uploads").toAbsolutePath().normalize();
+
+    private static final String AVATAR_PATH = "avatars/";
+    private static final int MAX_CACHED_FILES = 10_000;
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // 缩略图稍后就会生成，回退的原图不能被客户端长期缓存在这个地址上
+    private static final String FALLBACK = "public, max-age=60";
+
+    // Tomcat 的 sendfile 请求属性（org.apache.catalina.Globals）
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp");
+
+    private final AvatarStorage avatarStorage;
+    // 只缓存存在的文件，缩略图生成后能立刻被找到
+    private final Map<Path, FileInfo> files = Collections.synchronizedMap(
+            new LinkedHashMap<Path, FileInfo>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, FileInfo> eldest) {
+                    return size() > MAX_CACHED_FILES;
+                }
+            });
+
+    public UploadFileHandler(AvatarStorage avatarStorage) {
+        this.avatarStorage = avatarStorage;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        String relativePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        FileInfo file = null;
+        String cacheControl = IMMUTABLE;
+        String variant = variantPath(relativePath, request.getParameter("size"));
+        if (variant != null) {
+            file = lookup(variant);
+            if (file == null) {
+                cacheControl = FALLBACK;
+            }
+        }
+        if (file == null) {
+            file = lookup(relativePath);
+        }
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.LAST_MODIFIED, file.lastModifiedHeader);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince >= 0 && file.lastModified <= ifModifiedSince) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        long start = 0;
+        long end = file.length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, file)) {
+            long[] bounds = parseRange(range, file.length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (end - 1) + "/" + file.length);
+            }
+        }
+        response.setContentType(file.contentType);
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(method) || end == start) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 响应结束后由 Tomcat 直接从文件发到 socket
+            request.setAttribute(SENDFILE_FILENAME, file.path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    private String variantPath(String relativePath, String size) {
+        if (size == null || relativePath == null || !relativePath.startsWith(AVATAR_PATH)) {
+            return null;
+        }
+        try {
+            String variant = avatarStorage.variantFor(relativePath.substring(AVATAR_PATH.length()),
+                    Integer.parseInt(size));
+            return variant != null ? AVATAR_PATH + variant : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 文件不存在、不是普通文件或路径越出上传目录时返回 null
+     */
+    private FileInfo lookup(String relativePath) throws IOException {
+        if (relativePath == null || relativePath.isEmpty()) {
+            return null;
+        }
+        Path path = UPLOAD_ROOT.resolve(relativePath).normalize();
+        // 以点开头的是写入中的临时文件
+        if (!path.startsWith(UPLOAD_ROOT) || path.getFileName().toString().startsWith(".")) {
+            return null;
+        }
+        FileInfo info = files.get(path);
+        if (info != null) {
+            return info;
+        }
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        info = new FileInfo(path, Files.readAttributes(path, BasicFileAttributes.class));
+        files.put(path, info);
+        return info;
+    }
+
+    /**
+     * If-Range 与文件的 Last-Modified 不一致时忽略 Range，返回整个文件
+     */
+    private static boolean rangeApplies(HttpServletRequest request, FileInfo file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(file.lastModifiedHeader);
+    }
+
+    /**
+     * 只支持单段 Range
+     * @return {start, end}（end 不含）；多段或格式不对时返回空数组，按整个文件处理；无法满足时返回 null
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N：最后 N 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffix), length};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length : Math.min(Long.parseLong(last) + 1, length);
+            if (start >= length || end <= start) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static final class FileInfo {
+        private final Path path;
+        private final long length;
+        // HTTP 日期只精确到秒，比较时用截断后的值
+        private final long lastModified;
+        private final String lastModifiedHeader;
+        private final String contentType;
+
+        private FileInfo(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.length = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setLastModified(lastModified);
+            this.lastModifiedHeader = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            String name = path.getFileName().toString();
+            String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            this.contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.entity.Family;
+import com.sixspirits.xianshiji.entity.UserFamily;
+import com.sixspirits.xianshiji.mapper.FamilyMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 用户加入的家庭组及家庭组的成员，缓存在内存中，供家庭库存接口做权限校验、提醒推送找接收人。
+ * 创建或加入家庭组提交后清掉该用户和该家庭组的缓存。
+ */
+@Component
+public class FamilyMemberships {
+
+    private static final int MAX_USERS = 10_000;
+    private static final int MAX_FAMILIES = 10_000;
+    private static final long TTL_MILLIS = 60_000L;
+
+    private final FamilyMapper familyMapper;
+    private final TtlCache<Long, List<Family>> families = new TtlCache<>(MAX_USERS, TTL_MILLIS);
+    private final TtlCache<Long, List<Long>> members = new TtlCache<>(MAX_FAMILIES, TTL_MILLIS);
+
+    public FamilyMemberships(FamilyMapper familyMapper) {
+        this.familyMapper = familyMapper;
+    }
+
+    public List<Family> getFamilies(Long userId) {
+        return new ArrayList<>(families(userId));
+    }
+
+    public boolean isMember(Long userId, Long familyId) {
+        if (userId == null || familyId == null) {
+            return false;
+        }
+        for (Family family : families(userId)) {
+            if (familyId.equals(family.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 家庭组全部成员的用户ID
+     */
+    public List<Long> getMemberIds(Long familyId) {
+        return members.get(familyId, id -> familyMapper.findFamilyMembers(id).stream()
+                .map(UserFamily::getUserId).toList());
+    }
+
+    /**
+     * 在写事务中调用时，提交后再清除，避免提交前被并发读取重新缓存旧数据
+     */
+    public void invalidate(Long userId) {
+        families.invalidateAfterCompletion(userId);
+    }
+
+    /**
+     * 家庭组成员变化后调用，时机同 invalidate
+     */
+    public void invalidateMembers(Long familyId) {
+        members.invalidateAfterCompletion(familyId);
+    }
+
+    private List<Family> families(Long userId) {
+        return families.get(userId, id -> Collections.unmodifiableList(familyMapper.findUserFamilies(id)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.mapper.InventoryVersionMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 用户 / 家庭库存的版本号，每次写入加一，用来生成 GET 接口的 ETag。
+ * 版本号存在 inventory_version 表里，内存中缓存几秒，
+ * 未变化时条件请求只需查内存就能返回 304。
+ */
+@Component
+public class InventoryVersions {
+
+    public static final String USER = "USER";
+    public static final String FAMILY = "FAMILY";
+    // 过期巡检这类一次影响很多库存的变更只加这一个版本号
+    private static final String GLOBAL = "GLOBAL";
+    private static final long GLOBAL_ID = 0L;
+
+    private static final int MAX_ENTRIES = 100_000;
+    private static final long TTL_MILLIS = 5_000L;
+
+    private final InventoryVersionMapper inventoryVersionMapper;
+    private final TtlCache<String, Long> cache = new TtlCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    public InventoryVersions(InventoryVersionMapper inventoryVersionMapper) {
+        this.inventoryVersionMapper = inventoryVersionMapper;
+    }
+
+    /**
+     * 库存的强 ETag：范围版本号、全局版本号和日期（状态按日期计算）共同决定响应内容
+     */
+    public String etag(String scopeType, Long scopeId) {
+        return "\"inv-" + version(scopeType, scopeId) + "-" + version(GLOBAL, GLOBAL_ID)
+                + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+
+    /**
+     * 在写事务中调用，版本号随事务一起提交，提交后清掉本地缓存
+     */
+    public void bump(String scopeType, Long scopeId) {
+        bump(inventoryVersionMapper, scopeType, scopeId);
+    }
+
+    /**
+     * @param mapper 调用方所在事务使用的 mapper（例如 BATCH 执行器的），同一事务内不能混用执行器
+     */
+    public void bump(InventoryVersionMapper mapper, String scopeType, Long scopeId) {
+        if (scopeId == null) {
+            return;
+        }
+        mapper.increment(scopeType, scopeId);
+        cache.invalidateAfterCompletion(key(scopeType, scopeId));
+    }
+
+    public void bumpGlobal() {
+        bump(GLOBAL, GLOBAL_ID);
+    }
+
+    /**
+     * 与提交同时进行的读取可能读到提交前的版本号，TtlCache 会丢弃这类结果，
+     * 提交后的清除不会被它重新填回
+     */
+    private long version(String scopeType, Long scopeId) {
+        return cache.get(key(scopeType, scopeId), key -> {
+            Long version = inventoryVersionMapper.findVersion(scopeType, scopeId);
+            return version != null ? version : 0L;
+        });
+    }
+
+    private static String key(String scopeType, Long scopeId) {
+        return scopeType + ":" + scopeId;
+    }
+}
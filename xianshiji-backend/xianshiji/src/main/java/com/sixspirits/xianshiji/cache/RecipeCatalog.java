@@ -0,0 +1,443 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.entity.RecipeDetail;
+import com.sixspirits.xianshiji.entity.RecipeIngredient;
+import com.sixspirits.xianshiji.entity.RecipeSummary;
+import com.sixspirits.xianshiji.event.RecipeChangedEvent;
+import com.sixspirits.xianshiji.mapper.RecipeIngredientMapper;
+import com.sixspirits.xianshiji.mapper.RecipeMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * 菜谱目录及配料的内存快照：所有用户看到的都一样，读多写少。
+ * 快照不可变，每个菜谱预先序列化成两份 JSON：列表用的摘要（不含简介和步骤）和详情用的完整内容，
+ * 列表响应由摘要字节直接拼接；
+ * 菜谱增删改提交后只重新读取并序列化变更的那一条及其配料，按目录顺序插入到复制出的新快照中再整体替换。
+ * 菜谱详情（菜谱加配料）同样由快照提供，第一次读取时序列化并随条目缓存。
+ * 菜谱搜索、配料匹配的索引由这份快照派生，不再各自查库。
+ */
+@Component
+public class RecipeCatalog {
+
+    // 快照定期在后台整体重建，派生的索引随之重建
+    public static final long TTL_MILLIS = 10 * 60 * 1000L;
+
+    private static final byte[] ENVELOPE_PREFIX = "{\"success\":true,\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENVELOPE_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    // 与 findAll 的 ORDER BY created_at DESC 一致，时间相同时按 id 倒序保证稳定
+    private static final Comparator<Recipe> CATALOG_ORDER = Comparator
+            .comparing(Recipe::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(Recipe::getId, Comparator.nullsLast(Comparator.<Long>reverseOrder()));
+
+    private final RecipeMapper recipeMapper;
+    private final RecipeIngredientMapper recipeIngredientMapper;
+    private final JsonMapper jsonMapper;
+
+    private final RefreshingSnapshot<Snapshot> snapshot;
+
+    public RecipeCatalog(RecipeMapper recipeMapper, RecipeIngredientMapper recipeIngredientMapper,
+                         JsonMapper jsonMapper) {
+        this.recipeMapper = recipeMapper;
+        this.recipeIngredientMapper = recipeIngredientMapper;
+        this.jsonMapper = jsonMapper;
+        this.snapshot = new RefreshingSnapshot<>("recipe-catalog", TTL_MILLIS, this::load);
+    }
+
+    /**
+     * 已序列化好的响应体及其 ETag
+     */
+    public static final class CachedJson {
+        private final byte[] body;
+        private final String etag;
+
+        private CachedJson(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    public List<Recipe> getAll() {
+        return new ArrayList<>(current().recipes);
+    }
+
+    public List<Recipe> getByCuisineType(String cuisineType) {
+        List<Recipe> recipes = new ArrayList<>();
+        for (Entry entry : current().byCuisine.getOrDefault(cuisineType, List.of())) {
+            recipes.add(entry.recipe);
+        }
+        return recipes;
+    }
+
+    public Recipe getById(Long id) {
+        Entry entry = current().entries.get(id);
+        return entry != null ? entry.recipe : null;
+    }
+
+    /**
+     * 用同一份快照里的菜谱（按目录顺序）和配料（菜谱ID -> 配料）构建派生结构，两者不会来自不同版本
+     */
+    public <R> R derive(BiFunction<List<Recipe>, Map<Long, List<RecipeIngredient>>, R> builder) {
+        Snapshot current = current();
+        return builder.apply(current.recipes, current.ingredients);
+    }
+
+    /**
+     * 快照被替换后调用，派生索引据此在后台重建
+     */
+    public void addChangeListener(Runnable listener) {
+        snapshot.addListener(listener);
+    }
+
+    public CachedJson getAllJson() {
+        return current().allJson;
+    }
+
+    /**
+     * 游标之后的一页，响应体同样由预先序列化的菜谱拼接，并带上 nextCursor
+     * @param cursor 为 null 时从第一页开始
+     */
+    public CachedJson getPageJson(PageCursor cursor, int limit) {
+        return current().page(cursor, limit);
+    }
+
+    public CachedJson getByCuisineTypeJson(String cuisineType) {
+        return current().byCuisineJson.getOrDefault(cuisineType, Snapshot.EMPTY_LIST_JSON);
+    }
+
+    public CachedJson getByIdJson(Long id) {
+        Entry entry = current().entries.get(id);
+        return entry != null ? entry.json : Snapshot.NULL_JSON;
+    }
+
+    /**
+     * 菜谱及其配料的完整响应体
+     * @return 菜谱不存在时返回 null
+     */
+    public CachedJson getDetailJson(Long id) {
+        Entry entry = current().entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        // 并发的第一次读取可能各自序列化一次，结果相同，谁写入都可以
+        CachedJson detailJson = entry.detailJson;
+        if (detailJson == null) {
+            detailJson = new CachedJson(Snapshot.envelope(
+                    jsonMapper.writeValueAsBytes(RecipeDetail.of(entry.recipe, entry.ingredients))));
+            entry.detailJson = detailJson;
+        }
+        return detailJson;
+    }
+
+    /**
+     * 按传入顺序返回同一份快照中的菜谱详情，不存在的 id 跳过
+     */
+    public List<RecipeDetail> getDetails(List<Long> ids) {
+        Snapshot current = current();
+        List<RecipeDetail> details = new ArrayList<>();
+        for (Long id : ids) {
+            Entry entry = current.entries.get(id);
+            if (entry != null) {
+                details.add(RecipeDetail.of(entry.recipe, entry.ingredients));
+            }
+        }
+        return details;
+    }
+
+    public List<RecipeIngredient> getIngredients(Long id) {
+        Entry entry = current().entries.get(id);
+        return entry != null ? new ArrayList<>(entry.ingredients) : new ArrayList<>();
+    }
+
+    /**
+     * 变更提交后在写线程上同步更新，保证写完立刻读到新数据
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        Long id = event.getRecipeId();
+        snapshot.update(current -> id != null
+                ? current.with(id, changedEntry(id))
+                : load());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    /**
+     * @return 菜谱已删除时返回 null
+     */
+    private Entry changedEntry(Long id) {
+        Recipe recipe = recipeMapper.findById(id);
+        return recipe != null ? entry(recipe, recipeIngredientMapper.findByRecipeId(id)) : null;
+    }
+
+    private Snapshot current() {
+        return snapshot.get();
+    }
+
+    private Snapshot load() {
+        Map<Long, List<RecipeIngredient>> ingredients = new HashMap<>();
+        for (RecipeIngredient ingredient : recipeIngredientMapper.findAll()) {
+            ingredients.computeIfAbsent(ingredient.getRecipeId(), id -> new ArrayList<>()).add(ingredient);
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Recipe recipe : recipeMapper.findAll()) {
+            entries.add(entry(recipe, ingredients.getOrDefault(recipe.getId(), List.of())));
+        }
+        return Snapshot.of(entries);
+    }
+
+    private Entry entry(Recipe recipe, List<RecipeIngredient> ingredients) {
+        return new Entry(recipe, jsonMapper.writeValueAsBytes(RecipeSummary.of(recipe)),
+                jsonMapper.writeValueAsBytes(recipe), ingredients);
+    }
+
+    private static final class Entry {
+        private final Recipe recipe;
+        private final List<RecipeIngredient> ingredients;
+        // 摘要 JSON（不含外层 success/data），用于拼接列表
+        private final byte[] summaryJson;
+        private final CachedJson json;
+        // 菜谱加配料，第一次读取时生成
+        private volatile CachedJson detailJson;
+
+        private Entry(Recipe recipe, byte[] summaryJson, byte[] json, List<RecipeIngredient> ingredients) {
+            this.recipe = recipe;
+            this.ingredients = Collections.unmodifiableList(ingredients);
+            this.summaryJson = summaryJson;
+            this.json = new CachedJson(Snapshot.envelope(json));
+        }
+    }
+
+    private static final class Snapshot {
+        private static final CachedJson EMPTY_LIST_JSON = new CachedJson(listEnvelope(List.of(), null, false));
+        private static final CachedJson NULL_JSON = new CachedJson(envelope("null".getBytes(StandardCharsets.UTF_8)));
+
+        private final Map<Long, Entry> entries;
+        // 按目录顺序排列，创建后不再修改
+        private final List<Entry> ordered;
+        private final List<Recipe> recipes;
+        private final Map<Long, List<RecipeIngredient>> ingredients;
+        private final Map<String, List<Entry>> byCuisine;
+        private final CachedJson allJson;
+        private final Map<String, CachedJson> byCuisineJson;
+
+        private Snapshot(Map<Long, Entry> entries, List<Entry> ordered,
+                         Map<Long, List<RecipeIngredient>> ingredients, Map<String, List<Entry>> byCuisine,
+                         Map<String, CachedJson> byCuisineJson) {
+            this.entries = entries;
+            this.ordered = ordered;
+            this.recipes = recipesOf(ordered);
+            this.ingredients = Collections.unmodifiableMap(ingredients);
+            this.byCuisine = byCuisine;
+            this.allJson = new CachedJson(listEnvelope(ordered, null, false));
+            this.byCuisineJson = byCuisineJson;
+        }
+
+        /**
+         * 整体构建：排序一次，按菜系分组并拼接各个列表
+         */
+        private static Snapshot of(List<Entry> loaded) {
+            List<Entry> ordered = new ArrayList<>(loaded);
+            ordered.sort((a, b) -> CATALOG_ORDER.compare(a.recipe, b.recipe));
+
+            Map<Long, Entry> entries = new HashMap<>();
+            Map<Long, List<RecipeIngredient>> ingredients = new HashMap<>();
+            Map<String, List<Entry>> byCuisine = new HashMap<>();
+            for (Entry entry : ordered) {
+                entries.put(entry.recipe.getId(), entry);
+                ingredients.put(entry.recipe.getId(), entry.ingredients);
+                String cuisine = entry.recipe.getCuisineType();
+                if (cuisine != null) {
+                    byCuisine.computeIfAbsent(cuisine, c -> new ArrayList<>()).add(entry);
+                }
+            }
+            Map<String, CachedJson> byCuisineJson = new HashMap<>();
+            for (Map.Entry<String, List<Entry>> cuisine : byCuisine.entrySet()) {
+                byCuisineJson.put(cuisine.getKey(), new CachedJson(listEnvelope(cuisine.getValue(), null, false)));
+            }
+            return new Snapshot(entries, ordered, ingredients, byCuisine, byCuisineJson);
+        }
+
+        private CachedJson page(PageCursor cursor, int limit) {
+            int from = 0;
+            if (cursor != null) {
+                Recipe probe = new Recipe();
+                probe.setCreatedAt(cursor.getCreatedAt());
+                probe.setId(cursor.getId());
+                from = firstAfter(ordered, probe);
+            }
+            int to = Math.min(from + limit, ordered.size());
+            List<Entry> items = ordered.subList(from, to);
+            String nextCursor = null;
+            if (to < ordered.size() && !items.isEmpty()) {
+                Recipe last = items.get(items.size() - 1).recipe;
+                nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+            }
+            return new CachedJson(listEnvelope(items, nextCursor, true));
+        }
+
+        /**
+         * 复制出替换（changed 为空时删除）一条菜谱后的新快照：其他菜谱的 JSON 直接复用，
+         * 变更的那条按目录顺序二分插入，只重新拼接全部列表和受影响菜系的列表
+         */
+        private Snapshot with(Long id, Entry changed) {
+            Entry previous = entries.get(id);
+            if (previous == null && changed == null) {
+                return this;
+            }
+
+            Map<Long, Entry> entries = new HashMap<>(this.entries);
+            Map<Long, List<RecipeIngredient>> ingredients = new HashMap<>(this.ingredients);
+            if (changed == null) {
+                entries.remove(id);
+                ingredients.remove(id);
+            } else {
+                entries.put(id, changed);
+                ingredients.put(id, changed.ingredients);
+            }
+
+            Map<String, List<Entry>> byCuisine = new HashMap<>(this.byCuisine);
+            Map<String, CachedJson> byCuisineJson = new HashMap<>(this.byCuisineJson);
+            String previousCuisine = previous != null ? previous.recipe.getCuisineType() : null;
+            String changedCuisine = changed != null ? changed.recipe.getCuisineType() : null;
+            if (previousCuisine != null) {
+                replaceInCuisine(byCuisine, byCuisineJson, previousCuisine, previous,
+                        previousCuisine.equals(changedCuisine) ? changed : null);
+            }
+            if (changedCuisine != null && !changedCuisine.equals(previousCuisine)) {
+                replaceInCuisine(byCuisine, byCuisineJson, changedCuisine, null, changed);
+            }
+
+            return new Snapshot(entries, replace(ordered, previous, changed), ingredients,
+                    byCuisine, byCuisineJson);
+        }
+
+        private static void replaceInCuisine(Map<String, List<Entry>> byCuisine,
+                                             Map<String, CachedJson> byCuisineJson,
+                                             String cuisine, Entry previous, Entry changed) {
+            List<Entry> list = replace(byCuisine.getOrDefault(cuisine, List.of()), previous, changed);
+            if (list.isEmpty()) {
+                byCuisine.remove(cuisine);
+                byCuisineJson.remove(cuisine);
+            } else {
+                byCuisine.put(cuisine, list);
+                byCuisineJson.put(cuisine, new CachedJson(listEnvelope(list, null, false)));
+            }
+        }
+
+        /**
+         * 复制有序列表，去掉 previous 并把 changed 插入到目录顺序中的位置（两者都可以为空）
+         */
+        private static List<Entry> replace(List<Entry> list, Entry previous, Entry changed) {
+            List<Entry> copy = new ArrayList<>(list);
+            if (previous != null) {
+                // id 唯一，排在 previous 之后的第一条的前一条就是它自己
+                int index = firstAfter(copy, previous.recipe) - 1;
+                if (index >= 0 && copy.get(index) == previous) {
+                    copy.remove(index);
+                } else {
+                    copy.remove(previous);
+                }
+            }
+            if (changed != null) {
+                copy.add(firstAfter(copy, changed.recipe), changed);
+            }
+            return copy;
+        }
+
+        /**
+         * 二分查找按目录顺序排在 probe 之后的第一条
+         */
+        private static int firstAfter(List<Entry> list, Recipe probe) {
+            int low = 0;
+            int high = list.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (CATALOG_ORDER.compare(list.get(mid).recipe, probe) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static List<Recipe> recipesOf(List<Entry> ordered) {
+            return new AbstractList<Recipe>() {
+                @Override
+                public Recipe get(int index) {
+                    return ordered.get(index).recipe;
+                }
+
+                @Override
+                public int size() {
+                    return ordered.size();
+                }
+            };
+        }
+
+        private static byte[] envelope(byte[] data) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 32);
+            out.writeBytes(ENVELOPE_PREFIX);
+            out.writeBytes(data);
+            out.writeBytes(ENVELOPE_SUFFIX);
+            return out.toByteArray();
+        }
+
+        /**
+         * @param withCursor 分页请求时输出 nextCursor 字段（最后一页为 null）
+         */
+        private static byte[] listEnvelope(List<Entry> entries, String nextCursor, boolean withCursor) {
+            int size = ENVELOPE_PREFIX.length + ENVELOPE_SUFFIX.length + 64;
+            for (Entry entry : entries) {
+                size += entry.summaryJson.length + 1;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            out.writeBytes(ENVELOPE_PREFIX);
+            out.write('[');
+            for (int i = 0; i < entries.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.writeBytes(entries.get(i).summaryJson);
+            }
+            out.write(']');
+            if (withCursor) {
+                // 游标是 URL 安全的 Base64，无需转义
+                String cursor = nextCursor != null ? "\"" + nextCursor + "\"" : "null";
+                out.writeBytes((",\"nextCursor\":" + cursor).getBytes(StandardCharsets.UTF_8));
+            }
+            out.writeBytes(ENVELOPE_SUFFIX);
+            return out.toByteArray();
+        }
+    }
+}
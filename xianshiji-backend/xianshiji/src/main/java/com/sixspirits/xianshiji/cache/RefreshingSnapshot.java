@@ -0,0 +1,151 @@
+package com.sixspirits.xianshiji.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 不可变快照的持有者：第一次读取时同步加载，过期后读取仍返回旧快照，由后台线程整体重建再替换。
+ * 有效期的含义与 TtlCache 相同。
+ * 快照每次被替换后通知监听者，由它派生的索引据此重建。
+ */
+public class RefreshingSnapshot<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshingSnapshot.class);
+
+    private final String name;
+    private final long ttlMillis;
+    private final Supplier<T> loader;
+
+    private final ExecutorService refreshExecutor;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile T snapshot;
+    // 最近一次整体加载的时间，增量更新沿用
+    private volatile long loadedAt;
+    // 每次增量更新加一，后台重建完成时据此判断读到的数据是否已被更新的变更覆盖
+    private long generation;
+
+    /**
+     * @param name 用于日志和后台线程名
+     * @param loader 整体加载一份新快照，可能在后台线程上调用
+     */
+    public RefreshingSnapshot(String name, long ttlMillis, Supplier<T> loader) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.loader = loader;
+        this.refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public T get() {
+        T current = snapshot;
+        if (current == null) {
+            boolean loaded = false;
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = loader.get();
+                    loadedAt = System.currentTimeMillis();
+                    loaded = true;
+                }
+                current = snapshot;
+            }
+            if (loaded) {
+                notifyListeners();
+            }
+            return current;
+        }
+        if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+            refresh();
+        }
+        return current;
+    }
+
+    /**
+     * 在调用线程上同步修改快照，保证写完立刻读到新数据；尚未加载时忽略，下次读取会整体加载。
+     * 修改失败时丢弃快照，下次读取时整体重建，避免一直返回旧数据
+     */
+    public void update(UnaryOperator<T> change) {
+        try {
+            synchronized (this) {
+                if (snapshot == null) {
+                    return;
+                }
+                generation++;
+                snapshot = change.apply(snapshot);
+            }
+        } catch (Exception e) {
+            log.error("{} 更新失败", name, e);
+            invalidate();
+            return;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * 在后台整体重建；排队中的重建尚未开始时不再重复提交，重建期间仍返回旧快照
+     */
+    public void refresh() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            // 开始后再有请求会重新排队，保证读到开始之后的修改
+            refreshPending.set(false);
+            try {
+                long startedAt;
+                synchronized (this) {
+                    startedAt = generation;
+                }
+                T fresh = loader.get();
+                synchronized (this) {
+                    if (generation != startedAt) {
+                        return;
+                    }
+                    snapshot = fresh;
+                    loadedAt = System.currentTimeMillis();
+                }
+                notifyListeners();
+            } catch (Exception e) {
+                log.error("{} 重建失败", name, e);
+            }
+        });
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    /**
+     * 快照被替换（加载、增量更新或后台重建）后在替换它的线程上调用，监听者不应执行耗时操作
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("{} 变更通知失败", name, e);
+            }
+        }
+    }
+}
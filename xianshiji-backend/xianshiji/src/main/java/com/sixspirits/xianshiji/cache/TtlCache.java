@@ -0,0 +1,135 @@
+package com.sixspirits.xianshiji.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 带有效期的 LRU 缓存，条目数超过上限时淘汰最久未访问的。
+ * 缓存只在本节点内有效：本节点的写入由调用方在提交后清除，
+ * 多节点部署时其他节点的写入不会通知到这里，有效期即最长的陈旧时间。
+ */
+public class TtlCache<K, V> {
+
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries;
+    // 每次清除加一；加载期间发生过清除时，加载到的可能是清除前的旧数据，不缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TtlCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<K, Entry<V>>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * @return 未缓存或已过期时返回 null
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 未命中时用 loader 加载并缓存；loader 返回 null 或加载期间有清除时只返回、不缓存
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        long startedAt = invalidations.get();
+        value = loader.apply(key);
+        if (value != null) {
+            Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+            synchronized (entries) {
+                if (invalidations.get() == startedAt) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    /**
+     * @param ttlMillis 本条目的有效期，用于比默认有效期更早失效的数据
+     */
+    public void put(K key, V value, long ttlMillis) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateIf(Predicate<? super V> predicate) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.values().removeIf(entry -> predicate.test(entry.value));
+        }
+    }
+
+    /**
+     * 立即清除；在写事务中调用时提交或回滚后再清除一次，避免提交前被并发读取重新缓存旧数据
+     */
+    public void invalidateAfterCompletion(K key) {
+        runNowAndAfterCompletion(() -> invalidate(key));
+    }
+
+    /**
+     * 同 invalidateAfterCompletion，按值清除
+     */
+    public void invalidateIfAfterCompletion(Predicate<? super V> predicate) {
+        runNowAndAfterCompletion(() -> invalidateIf(predicate));
+    }
+
+    private static void runNowAndAfterCompletion(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.entity.UserProfile;
+import com.sixspirits.xianshiji.mapper.UserMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户公开资料（昵称、头像）的读穿透缓存，各请求共享。
+ * 未命中的用户合并成一条 IN 查询加载，修改资料或头像后清除。
+ */
+@Component
+public class UserProfiles {
+
+    private static final int MAX_USERS = 10_000;
+    private static final long TTL_MILLIS = 5 * 60 * 1000L;
+    // IN 列表的长度上限
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final UserMapper userMapper;
+    private final TtlCache<Long, UserProfile> cache = new TtlCache<>(MAX_USERS, TTL_MILLIS);
+
+    public UserProfiles(UserMapper userMapper) {
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * 批量获取用户资料，不存在的用户不出现在结果里；返回的对象是共享的，调用方不要修改
+     */
+    public Map<Long, UserProfile> getProfiles(Collection<Long> userIds) {
+        Map<Long, UserProfile> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            UserProfile profile = cache.get(userId);
+            if (profile != null) {
+                result.put(userId, profile);
+            } else {
+                missing.add(userId);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> ids = missing.subList(from, Math.min(from + MAX_IDS_PER_QUERY, missing.size()));
+            for (UserProfile profile : userMapper.findProfilesByIds(ids)) {
+                cache.put(profile.getId(), profile);
+                result.put(profile.getId(), profile);
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+}
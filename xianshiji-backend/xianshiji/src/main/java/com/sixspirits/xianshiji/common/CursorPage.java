@@ -0,0 +1,41 @@
+package com.sixspirits.xianshiji.common;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 一页数据及下一页的游标，没有下一页时 nextCursor 为 null
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 由多查一行的结果构造分页：查询按 limit + 1 取数，多出的那行只用来判断是否还有下一页
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, LocalDateTime> createdAt,
+                                       Function<T, Long> id) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        T last = items.get(limit - 1);
+        return new CursorPage<>(items, new PageCursor(createdAt.apply(last), id.apply(last)).encode());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,70 @@
+package com.sixspirits.xianshiji.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 按 (created_at DESC, id DESC) 翻页的游标：记录上一页最后一行的位置，对客户端不透明
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public PageCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * created_at 为空的行排在最后，此时游标只按 id 继续
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return token 为空时返回 null，表示从第一页开始
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            String createdAt = raw.substring(0, separator);
+            return new PageCursor(createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 是否按页返回：带了游标或指定了 limit 都算分页请求，否则保持原来一次返回全部的行为
+     */
+    public static boolean isPaged(String token, int limit) {
+        return limit > 0 || (token != null && !token.isBlank());
+    }
+
+    public static int normalizeLimit(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
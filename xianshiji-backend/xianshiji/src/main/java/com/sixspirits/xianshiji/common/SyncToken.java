@@ -0,0 +1,33 @@
+package com.sixspirits.xianshiji.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 增量同步的令牌：记录下次同步从哪个时间点（数据库时钟）开始取变更，对客户端不透明
+ */
+public final class SyncToken {
+
+    private SyncToken() {
+    }
+
+    public static String encode(LocalDateTime since) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(since.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return token 为空时返回 null，表示需要全量同步
+     */
+    public static LocalDateTime decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的同步令牌");
+        }
+    }
+}
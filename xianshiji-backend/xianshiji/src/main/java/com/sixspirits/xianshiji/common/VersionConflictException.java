@@ -0,0 +1,11 @@
+package com.sixspirits.xianshiji.common;
+
+/**
+ * 乐观锁校验失败：记录已被其他请求修改，客户端应重新读取后再提交
+ */
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,10 @@
 package com.sixspirits.xianshiji.controller;
 
 import com.sixspirits.xianshiji.entity.Family;
+import com.sixspirits.xianshiji.entity.FamilyMember;
 import com.sixspirits.xianshiji.entity.UserFamily;
+import com.sixspirits.xianshiji.security.AuthPrincipal;
+import com.sixspirits.xianshiji.security.UserIdGuard;
 import com.sixspirits.xianshiji.service.FamilyService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,15 +20,20 @@ import java.util.UUID;
 public class FamilyController {
 
     private final FamilyService familyService;
+    private final UserIdGuard userIdGuard;
 
-    public FamilyController(FamilyService familyService) {
+    public FamilyController(FamilyService familyService, UserIdGuard userIdGuard) {
         this.familyService = familyService;
+        this.userIdGuard = userIdGuard;
     }
 
     @PostMapping("/create")
     public ResponseEntity<Map<String, Object>> createFamily(@RequestBody Map<String, String> request) {
         String familyName = request.get("familyName");
-        String creatorId = request.get("creatorId"); // 从token或session获取
+        // 带令牌时创建者就是令牌中的用户，请求体里的 creatorId 只用于不带令牌的旧客户端
+        AuthPrincipal principal = AuthPrincipal.current();
+        String creatorId = principal != null ? principal.getUserId().toString() : request.get("creatorId");
+        userIdGuard.check(creatorId);
 
         if (familyName == null || familyName.trim().isEmpty()) {
             Map<String, Object> error = new HashMap<>();
@@ -101,4 +109,21 @@ public class FamilyController {
             return ResponseEntity.badRequest().body(error);
         }
     }
+
+    @GetMapping("/{familyId}/members")
+    public ResponseEntity<Map<String, Object>> getFamilyMembers(@PathVariable Long familyId,
+                                                                @RequestParam String userId) {
+        try {
+            List<FamilyMember> members = familyService.getFamilyMembers(Long.parseLong(userId), familyId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("members", members);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 }
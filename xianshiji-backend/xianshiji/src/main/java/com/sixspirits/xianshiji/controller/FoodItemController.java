@@ -1,11 +1,25 @@
 package com.sixspirits.xianshiji.controller;
 
+import com.sixspirits.xianshiji.alert.AlertStreamRegistry;
+import com.sixspirits.xianshiji.common.CursorPage;
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.common.VersionConflictException;
 import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.entity.FoodItemChanges;
+import com.sixspirits.xianshiji.security.AuthTokens;
 import com.sixspirits.xianshiji.service.FoodItemService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,18 +30,54 @@ import java.util.Map;
 public class FoodItemController {
 
     private final FoodItemService foodItemService;
+    private final AlertStreamRegistry alertStreamRegistry;
+    private final AuthTokens authTokens;
 
-    public FoodItemController(FoodItemService foodItemService) {
+    public FoodItemController(FoodItemService foodItemService, AlertStreamRegistry alertStreamRegistry,
+                              AuthTokens authTokens) {
         this.foodItemService = foodItemService;
+        this.alertStreamRegistry = alertStreamRegistry;
+        this.authTokens = authTokens;
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserFoodItems(@PathVariable Long userId) {
+    public ResponseEntity<Map<String, Object>> getUserFoodItems(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest webRequest) {
         try {
-            List<FoodItem> items = foodItemService.getUserFoodItems(userId);
+            // 库存版本未变化：checkNotModified 已写好 304，不再查询食材
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", items);
+            if (PageCursor.isPaged(cursor, limit)) {
+                CursorPage<FoodItem> page = foodItemService.getUserFoodItemsPage(userId, cursor, limit);
+                response.put("data", page.getItems());
+                response.put("nextCursor", page.getNextCursor());
+            } else {
+                response.put("data", foodItemService.getUserFoodItems(userId));
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/user/{userId}/changes")
+    public ResponseEntity<Map<String, Object>> getUserFoodItemChanges(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String since) {
+        try {
+            FoodItemChanges changes = foodItemService.getUserFoodItemChanges(userId, since);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", changes);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -37,16 +87,141 @@ public class FoodItemController {
         }
     }
 
+    /**
+     * 签发建立事件流用的短期令牌，作为 access_token 查询参数传给 /alerts/stream；
+     * 与其他接口一样按 Authorization 请求头中的登录令牌校验 userId，每次连接或重连前重新获取
+     */
+    @PostMapping("/user/{userId}/alerts/stream-token")
+    public ResponseEntity<Map<String, Object>> issueStreamToken(@PathVariable Long userId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", authTokens.issueStreamToken(userId));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 食材状态变化的事件流（SSE），只推送临期、过期、数量不足等状态切换；
+     * 断线重连时客户端带上 Last-Event-ID，补发期间错过的事件
+     */
+    @GetMapping(value = "/user/{userId}/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        try {
+            return alertStreamRegistry.subscribe(userId, lastEventId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * 家庭组共享的库存，userId 需是该家庭组的成员
+     */
+    @GetMapping("/family/{familyId}")
+    public ResponseEntity<Map<String, Object>> getFamilyFoodItems(
+            @PathVariable Long familyId,
+            @RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(foodItemService.getFamilyInventoryEtag(userId, familyId))) {
+                return null;
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            if (PageCursor.isPaged(cursor, limit)) {
+                CursorPage<FoodItem> page = foodItemService.getFamilyFoodItemsPage(userId, familyId, cursor, limit);
+                response.put("data", page.getItems());
+                response.put("nextCursor", page.getNextCursor());
+            } else {
+                response.put("data", foodItemService.getFamilyFoodItems(userId, familyId));
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/family/{familyId}/statistics")
+    public ResponseEntity<Map<String, Object>> getFamilyFoodStatistics(@PathVariable Long familyId,
+                                                                       @RequestParam Long userId,
+                                                                       WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(foodItemService.getFamilyInventoryEtag(userId, familyId))) {
+                return null;
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", foodItemService.getFamilyFoodStatistics(userId, familyId));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * 临期、过期和数量不足三组提醒，每组按紧急程度排序
+     */
+    @GetMapping("/user/{userId}/alerts")
+    public ResponseEntity<Map<String, Object>> getUserFoodAlerts(@PathVariable Long userId,
+                                                                 WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", foodItemService.getUserFoodAlerts(userId));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/family/{familyId}/alerts")
+    public ResponseEntity<Map<String, Object>> getFamilyFoodAlerts(@PathVariable Long familyId,
+                                                                   @RequestParam Long userId,
+                                                                   WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(foodItemService.getFamilyInventoryEtag(userId, familyId))) {
+                return null;
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", foodItemService.getFamilyFoodAlerts(userId, familyId));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/user/{userId}/category/{category}")
     public ResponseEntity<Map<String, Object>> getUserFoodItemsByCategory(
             @PathVariable Long userId,
-            @PathVariable String category) {
+            @PathVariable String category,
+            WebRequest webRequest) {
         try {
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
             List<FoodItem> items = foodItemService.getUserFoodItemsByCategory(userId, category);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", items);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -58,13 +233,18 @@ public class FoodItemController {
     @GetMapping("/user/{userId}/search")
     public ResponseEntity<Map<String, Object>> searchUserFoodItems(
             @PathVariable Long userId,
-            @RequestParam String keyword) {
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest webRequest) {
         try {
-            List<FoodItem> items = foodItemService.searchUserFoodItems(userId, keyword);
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
+            List<FoodItem> items = foodItemService.searchUserFoodItems(userId, keyword, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", items);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -76,13 +256,21 @@ public class FoodItemController {
     @GetMapping("/user/{userId}/status/{status}")
     public ResponseEntity<Map<String, Object>> getUserFoodItemsByStatus(
             @PathVariable Long userId,
-            @PathVariable String status) {
+            @PathVariable String status,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryTo,
+            WebRequest webRequest) {
         try {
-            List<FoodItem> items = foodItemService.getUserFoodItemsByStatus(userId, status);
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
+            List<FoodItem> items = foodItemService.getUserFoodItemsByStatus(userId, status, category,
+                    expiryFrom, expiryTo);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", items);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -92,12 +280,48 @@ public class FoodItemController {
     }
 
     @GetMapping("/user/{userId}/statistics")
-    public ResponseEntity<Map<String, Object>> getFoodStatistics(@PathVariable Long userId) {
+    public ResponseEntity<Map<String, Object>> getFoodStatistics(@PathVariable Long userId,
+                                                                 WebRequest webRequest) {
         try {
+            if (webRequest.checkNotModified(foodItemService.getUserInventoryEtag(userId))) {
+                return null;
+            }
             java.util.Map<String, Integer> stats = foodItemService.getFoodStatistics(userId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", stats);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/user/{userId}/statistics/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildFoodStatistics(@PathVariable Long userId) {
+        try {
+            java.util.Map<String, Integer> stats = foodItemService.rebuildFoodStatistics(userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", stats);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/user/{userId}/status/sync")
+    public ResponseEntity<Map<String, Object>> syncStatuses(@PathVariable Long userId) {
+        try {
+            int updated = foodItemService.syncStatuses(userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("updated", updated);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -123,6 +347,57 @@ public class FoodItemController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> addFoodItems(@RequestBody BatchRequest request) {
+        try {
+            List<Map<String, Object>> results = foodItemService.addFoodItems(request.getUserId(), request.getItems());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PutMapping("/batch/quantity")
+    public ResponseEntity<Map<String, Object>> updateQuantities(@RequestBody BatchRequest request) {
+        try {
+            List<Map<String, Object>> results = foodItemService.updateQuantities(request.getUserId(),
+                    request.getItems());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<Map<String, Object>> deleteFoodItems(
+            @RequestParam Long userId,
+            @RequestParam List<Long> ids) {
+        try {
+            List<Map<String, Object>> results = foodItemService.deleteFoodItems(userId, ids);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PutMapping("/{id}/quantity")
     public ResponseEntity<Map<String, Object>> updateQuantity(
             @PathVariable Long id,
@@ -147,25 +422,90 @@ public class FoodItemController {
         }
     }
 
-    @PutMapping("/{id}/min-quantity")
-    public ResponseEntity<Map<String, Object>> updateMinQuantity(
+    /**
+     * 消耗一定数量，body: { userId, amount }；并发消耗同一食材时各自生效，不会互相覆盖
+     */
+    @PostMapping("/{id}/consume")
+    public ResponseEntity<Map<String, Object>> consume(
             @PathVariable Long id,
             @RequestBody Map<String, Object> request) {
+        try {
+            Long userId = Long.parseLong(request.get("userId").toString());
+            BigDecimal amount = new BigDecimal(request.get("amount").toString());
+            FoodItem item = foodItemService.consume(id, amount, userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", item);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 
-        System.out.println("收到更新保底数量请求: id=" + id + ", request=" + request);
+    /**
+     * 补充一定数量，body: { userId, amount }
+     */
+    @PostMapping("/{id}/restock")
+    public ResponseEntity<Map<String, Object>> restock(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> request) {
+        try {
+            Long userId = Long.parseLong(request.get("userId").toString());
+            BigDecimal amount = new BigDecimal(request.get("amount").toString());
+            FoodItem item = foodItemService.restock(id, amount, userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", item);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 
+    /**
+     * 部分修改食材，body: { userId, version, 要改的字段... }；version 与当前不一致时返回 409
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> patchFoodItem(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> request) {
+        try {
+            Long userId = Long.parseLong(request.get("userId").toString());
+            FoodItem item = foodItemService.patchFoodItem(id, userId, request);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", item);
+            return ResponseEntity.ok(response);
+        } catch (VersionConflictException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PutMapping("/{id}/min-quantity")
+    public ResponseEntity<Map<String, Object>> updateMinQuantity(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> request) {
         Long userId = Long.parseLong(request.get("userId").toString());
         BigDecimal minQuantity = request.get("minQuantity") != null
                 ? new BigDecimal(request.get("minQuantity").toString())
                 : null;
 
         try {
-            System.out.println("开始执行更新: id=" + id + ", userId=" + userId + ", minQuantity=" + minQuantity);
-            
             boolean success = foodItemService.updateMinQuantity(id, minQuantity, userId);
-            
-            System.out.println("更新结果: " + success);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("success", success);
             if (!success) {
@@ -173,9 +513,6 @@ public class FoodItemController {
             }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("更新保底数量时发生错误: " + e.getMessage());
-            e.printStackTrace();
-            
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", e.getMessage());
@@ -187,18 +524,10 @@ public class FoodItemController {
     public ResponseEntity<Map<String, Object>> updateFoodItem(
             @PathVariable Long id,
             @RequestBody FoodItem foodItem) {
-
-        System.out.println("收到更新食材信息请求: id=" + id + ", foodItem=" + foodItem);
-
         Long userId = foodItem.getUserId();
 
         try {
-            System.out.println("开始执行更新: id=" + id + ", userId=" + userId);
-            
             boolean success = foodItemService.updateFoodItem(id, foodItem, userId);
-            
-            System.out.println("更新结果: " + success);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("success", success);
             if (!success) {
@@ -206,9 +535,6 @@ public class FoodItemController {
             }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("更新食材信息时发生错误: " + e.getMessage());
-            e.printStackTrace();
-            
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", e.getMessage());
@@ -235,4 +561,26 @@ public class FoodItemController {
             return ResponseEntity.badRequest().body(error);
         }
     }
+
+    // 内部类用于接收批量操作的请求体
+    static class BatchRequest {
+        private Long userId;
+        private List<FoodItem> items;
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public List<FoodItem> getItems() {
+            return items;
+        }
+
+        public void setItems(List<FoodItem> items) {
+            this.items = items;
+        }
+    }
 }
@@ -1,10 +1,20 @@
 package com.sixspirits.xianshiji.controller;
 
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.common.VersionConflictException;
 import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.entity.RecipeDetail;
 import com.sixspirits.xianshiji.entity.RecipeIngredient;
+import com.sixspirits.xianshiji.search.CookableRecipe;
+import com.sixspirits.xianshiji.security.AuthPrincipal;
 import com.sixspirits.xianshiji.service.RecipeService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,13 +32,13 @@ public class RecipeController {
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllRecipes() {
+    public ResponseEntity<?> getAllRecipes(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "0") int limit) {
         try {
-            List<Recipe> recipes = recipeService.getAllRecipes();
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", recipes);
-            return ResponseEntity.ok(response);
+            if (PageCursor.isPaged(cursor, limit)) {
+                return cachedJson(recipeService.getRecipesPageJson(cursor, limit));
+            }
+            return cachedJson(recipeService.getAllRecipesJson());
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -38,9 +48,22 @@ public class RecipeController {
     }
 
     @GetMapping("/cuisine/{cuisineType}")
-    public ResponseEntity<Map<String, Object>> getRecipesByCuisineType(@PathVariable String cuisineType) {
+    public ResponseEntity<?> getRecipesByCuisineType(@PathVariable String cuisineType) {
         try {
-            List<Recipe> recipes = recipeService.getRecipesByCuisineType(cuisineType);
+            return cachedJson(recipeService.getRecipesByCuisineTypeJson(cuisineType));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchRecipes(@RequestParam String keyword,
+                                                             @RequestParam(defaultValue = "0") int limit) {
+        try {
+            List<Recipe> recipes = recipeService.searchRecipes(keyword, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", recipes);
@@ -53,10 +76,12 @@ public class RecipeController {
         }
     }
 
-    @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> searchRecipes(@RequestParam String keyword) {
+    @GetMapping("/cookable")
+    public ResponseEntity<Map<String, Object>> getCookableRecipes(@RequestParam Long userId,
+                                                                  @RequestParam(required = false) Long familyId,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
         try {
-            List<Recipe> recipes = recipeService.searchRecipes(keyword);
+            List<CookableRecipe> recipes = recipeService.getCookableRecipes(userId, familyId, limit);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", recipes);
@@ -69,13 +94,13 @@ public class RecipeController {
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getRecipeById(@PathVariable Long id) {
+    @GetMapping("/details")
+    public ResponseEntity<Map<String, Object>> getRecipeDetails(@RequestParam List<Long> ids) {
         try {
-            Recipe recipe = recipeService.getRecipeById(id);
+            List<RecipeDetail> details = recipeService.getRecipeDetails(ids);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", recipe);
+            response.put("data", details);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -85,6 +110,37 @@ public class RecipeController {
         }
     }
 
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getRecipeById(@PathVariable Long id) {
+        try {
+            return cachedJson(recipeService.getRecipeByIdJson(id));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/{id}/detail")
+    public ResponseEntity<?> getRecipeDetail(@PathVariable Long id) {
+        try {
+            RecipeCatalog.CachedJson detail = recipeService.getRecipeDetailJson(id);
+            if (detail == null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "菜谱不存在");
+                return ResponseEntity.ok(response);
+            }
+            return cachedJson(detail);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/{id}/ingredients")
     public ResponseEntity<Map<String, Object>> getRecipeIngredients(@PathVariable Long id) {
         try {
@@ -104,7 +160,9 @@ public class RecipeController {
     @PostMapping
     public ResponseEntity<Map<String, Object>> addRecipe(@RequestBody RecipeRequest request) {
         try {
-            Recipe savedRecipe = recipeService.addRecipe(request.getRecipe(), request.getIngredients());
+            AuthPrincipal principal = AuthPrincipal.current();
+            Recipe savedRecipe = recipeService.addRecipe(request.getRecipe(), request.getIngredients(),
+                    principal != null ? principal.getUserId() : null);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", savedRecipe);
@@ -119,10 +177,11 @@ public class RecipeController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, Object>> updateRecipe(@PathVariable Long id, @RequestBody RecipeRequest request) {
+        Long userId = requireUserId();
         try {
             Recipe recipe = request.getRecipe();
             recipe.setId(id);
-            Recipe updatedRecipe = recipeService.updateRecipe(recipe, request.getIngredients());
+            Recipe updatedRecipe = recipeService.updateRecipe(recipe, request.getIngredients(), userId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", updatedRecipe);
@@ -135,12 +194,43 @@ public class RecipeController {
         }
     }
 
+    /**
+     * 部分修改菜谱，body 中只需包含要改的字段，带上 version 时做乐观锁校验（冲突返回 409）；
+     * 只有创建者可以修改
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> patchRecipe(@PathVariable Long id,
+                                                           @RequestBody Map<String, Object> changes) {
+        Long userId = requireUserId();
+        try {
+            Recipe recipe = recipeService.patchRecipe(id, userId, changes);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", recipe);
+            return ResponseEntity.ok(response);
+        } catch (VersionConflictException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, Object>> deleteRecipe(@PathVariable Long id) {
+        Long userId = requireUserId();
         try {
-            boolean success = recipeService.deleteRecipe(id);
+            boolean success = recipeService.deleteRecipe(id, userId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", success);
+            if (!success) {
+                response.put("message", "菜谱不存在或无权删除");
+            }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -150,6 +240,28 @@ public class RecipeController {
         }
     }
 
+    /**
+     * 修改和删除菜谱需要登录令牌，与 require-token 无关：菜谱按创建者授权，旧客户端不会调用这些接口
+     */
+    private static Long requireUserId() {
+        AuthPrincipal principal = AuthPrincipal.current();
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "请先登录");
+        }
+        return principal.getUserId();
+    }
+
+    /**
+     * 输出预先序列化好的响应体；带上 ETag 后，If-None-Match 命中时框架直接返回 304
+     */
+    private ResponseEntity<byte[]> cachedJson(RecipeCatalog.CachedJson json) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(json.getEtag())
+                .body(json.getBody());
+    }
+
     // 内部类用于接收菜谱和配料信息
     static class RecipeRequest {
         private Recipe recipe;
@@ -171,4 +283,5 @@ public class RecipeController {
             this.ingredients = ingredients;
         }
     }
+
 }
\ No newline at end of file
@@ -1,20 +1,24 @@
 package com.sixspirits.xianshiji.controller;
 
+import com.sixspirits.xianshiji.avatar.AvatarStorage;
+import com.sixspirits.xianshiji.common.CursorPage;
+import com.sixspirits.xianshiji.common.PageCursor;
 import com.sixspirits.xianshiji.entity.User;
+import com.sixspirits.xianshiji.security.AuthTokens;
+import com.sixspirits.xianshiji.security.UserIdGuard;
 import com.sixspirits.xianshiji.service.UserService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @CrossOrigin // 先简单解决跨域
@@ -22,18 +26,46 @@ import java.util.UUID;
 public class UserController {
 
     private final UserService userService;
+    private final AuthTokens authTokens;
+    private final AvatarStorage avatarStorage;
+    private final UserIdGuard userIdGuard;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, AuthTokens authTokens, AvatarStorage avatarStorage,
+                          UserIdGuard userIdGuard) {
         this.userService = userService;
+        this.authTokens = authTokens;
+        this.avatarStorage = avatarStorage;
+        this.userIdGuard = userIdGuard;
     }
 
     @GetMapping
-    public List<User> list() {
-        return userService.getAllUsers();
+    public ResponseEntity<?> list(@RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "0") int limit) {
+        // 不带分页参数时保持原来直接返回数组的格式
+        if (!PageCursor.isPaged(cursor, limit)) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        try {
+            CursorPage<User> page = userService.getUsersPage(cursor, limit);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
+    /**
+     * 注册、登录、修改资料都要做密码哈希，在独立线程池中执行，接口异步返回；
+     * 线程池满时返回 503
+     */
     @PostMapping("/register")
-    public ResponseEntity<Map<String, Object>> register(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> register(@RequestBody Map<String, String> request) {
         String phone = request.get("phone");
         String email = request.get("email");
         String password = request.get("password");
@@ -45,49 +77,57 @@ public class UserController {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", "参数不完整");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
         try {
-            User user = userService.register(phone, email, password, nickname);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("user", user);
-            return ResponseEntity.ok(response);
+            return userService.register(phone, email, password, nickname).handle((user, e) -> {
+                if (e != null) {
+                    return failure(e);
+                }
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("user", user);
+                // 之后的请求带上 Authorization: Bearer <token>
+                response.put("token", authTokens.issue(user.getId()));
+                return ResponseEntity.ok(response);
+            });
         } catch (Exception e) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("success", false);
-            error.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(failure(e));
         }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@RequestBody Map<String, String> request) {
         String account = request.get("account"); // phone or email
         String password = request.get("password");
         if (account == null || account.trim().isEmpty() || password == null || password.trim().isEmpty()) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", "参数不完整");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
         try {
-            User user = userService.login(account, password);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("user", user);
-            return ResponseEntity.ok(response);
+            return userService.login(account, password).handle((user, e) -> {
+                if (e != null) {
+                    return failure(e);
+                }
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("user", user);
+                // 之后的请求带上 Authorization: Bearer <token>
+                response.put("token", authTokens.issue(user.getId()));
+                return ResponseEntity.ok(response);
+            });
         } catch (Exception e) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("success", false);
-            error.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(failure(e));
         }
     }
 
     @PutMapping("/update")
-    public ResponseEntity<Map<String, Object>> updateUser(@RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> updateUser(@RequestBody Map<String, Object> request) {
         Long userId = Long.parseLong(request.get("id").toString());
+        // 这里的用户ID字段叫 id，不经过 UserIdBodyAdvice
+        userIdGuard.check(userId);
         String nickname = (String) request.get("nickname");
         String phone = (String) request.get("phone");
         String email = (String) request.get("email");
@@ -98,20 +138,22 @@ public class UserController {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", "昵称不能为空");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
 
         try {
-            User updatedUser = userService.updateUser(userId, nickname, phone, email, oldPassword, newPassword);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("user", updatedUser);
-            return ResponseEntity.ok(response);
+            return userService.updateUser(userId, nickname, phone, email, oldPassword, newPassword)
+                    .handle((updatedUser, e) -> {
+                        if (e != null) {
+                            return failure(e);
+                        }
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("success", true);
+                        response.put("user", updatedUser);
+                        return ResponseEntity.ok(response);
+                    });
         } catch (Exception e) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("success", false);
-            error.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(failure(e));
         }
     }
 
@@ -126,26 +168,8 @@ public class UserController {
         }
 
         try {
-            // 创建上传目录
-            String uploadDir = "uploads/avatars/";
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 生成文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".")
-                    ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                    : ".jpg";
-            String filename = UUID.randomUUID().toString() + extension;
-            Path filePath = uploadPath.resolve(filename);
-
-            // 保存文件
-            Files.copy(file.getInputStream(), filePath);
-
-            // 生成URL
-            String avatarUrl = "/uploads/avatars/" + filename;
+            // 原图落盘后即返回，缩略图在后台生成；显示时在 avatarUrl 后加 ?size= 取对应尺寸
+            String avatarUrl = avatarStorage.store(file);
 
             // 更新用户头像
             userService.updateAvatar(userId, avatarUrl);
@@ -154,6 +178,11 @@ public class UserController {
             response.put("success", true);
             response.put("avatarUrl", avatarUrl);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (IOException e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -161,4 +190,16 @@ public class UserController {
             return ResponseEntity.status(500).body(error);
         }
     }
+
+    private static ResponseEntity<Map<String, Object>> failure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        if (cause instanceof RejectedExecutionException) {
+            error.put("message", "服务繁忙，请稍后重试");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+        error.put("message", cause.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
 }
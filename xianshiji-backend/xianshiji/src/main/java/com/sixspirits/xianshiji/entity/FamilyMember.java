@@ -0,0 +1,62 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 家庭组成员：成员关系加上用户的公开资料
+ */
+public class FamilyMember {
+
+    private Long userId;
+    private String nickname;
+    private String avatarUrl;
+
+    /**
+     * OWNER / MEMBER
+     */
+    private String role;
+
+    private LocalDateTime joinedAt;
+
+    // getter / setter
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public void setNickname(String nickname) {
+        this.nickname = nickname;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    public void setJoinedAt(LocalDateTime joinedAt) {
+        this.joinedAt = joinedAt;
+    }
+}
@@ -0,0 +1,113 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 提醒列表中的一项，只含界面展示需要的字段
+ */
+public class FoodAlert {
+
+    private Long id;
+    private String name;
+    private String category;
+    private BigDecimal quantity;
+    private BigDecimal minQuantity;
+    private String unit;
+    private LocalDate expiryDate;
+
+    /**
+     * NEAR_EXPIRY / EXPIRED / INSUFFICIENT
+     */
+    private String status;
+
+    private String imageUrl;
+
+    public static FoodAlert of(FoodItem item) {
+        FoodAlert alert = new FoodAlert();
+        alert.setId(item.getId());
+        alert.setName(item.getName());
+        alert.setCategory(item.getCategory());
+        alert.setQuantity(item.getQuantity());
+        alert.setMinQuantity(item.getMinQuantity());
+        alert.setUnit(item.getUnit());
+        alert.setExpiryDate(item.getExpiryDate());
+        alert.setStatus(item.getStatus());
+        alert.setImageUrl(item.getImageUrl());
+        return alert;
+    }
+
+    // getter / setter
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(BigDecimal quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getMinQuantity() {
+        return minQuantity;
+    }
+
+    public void setMinQuantity(BigDecimal minQuantity) {
+        this.minQuantity = minQuantity;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+}
@@ -0,0 +1,97 @@
+package com.sixspirits.xianshiji.entity;
+
+import com.sixspirits.xianshiji.event.FoodStatusChangedEvent;
+
+import java.time.LocalDate;
+
+/**
+ * food_alert_event 表的一行：一次食材状态变化，id 即推送给客户端的事件 id
+ */
+public class FoodAlertEvent {
+
+    private Long id;
+    private Long userId;
+    private Long familyId;
+    private Long itemId;
+    private String name;
+    private String oldStatus;
+    private String newStatus;
+    private LocalDate expiryDate;
+
+    public static FoodAlertEvent of(FoodStatusChangedEvent event) {
+        FoodAlertEvent alertEvent = new FoodAlertEvent();
+        alertEvent.setUserId(event.getUserId());
+        alertEvent.setFamilyId(event.getFamilyId());
+        alertEvent.setItemId(event.getItemId());
+        alertEvent.setName(event.getName());
+        alertEvent.setOldStatus(event.getOldStatus());
+        alertEvent.setNewStatus(event.getNewStatus());
+        alertEvent.setExpiryDate(event.getExpiryDate());
+        return alertEvent;
+    }
+
+    // getter / setter
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getFamilyId() {
+        return familyId;
+    }
+
+    public void setFamilyId(Long familyId) {
+        this.familyId = familyId;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOldStatus() {
+        return oldStatus;
+    }
+
+    public void setOldStatus(String oldStatus) {
+        this.oldStatus = oldStatus;
+    }
+
+    public String getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(String newStatus) {
+        this.newStatus = newStatus;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+}
@@ -0,0 +1,56 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按类型分组的提醒：临期、已过期、数量不足，每组按紧急程度排序
+ */
+public class FoodAlerts {
+
+    private List<FoodAlert> nearExpiry = new ArrayList<>();
+    private List<FoodAlert> expired = new ArrayList<>();
+    private List<FoodAlert> insufficient = new ArrayList<>();
+
+    // getter / setter
+
+    public List<FoodAlert> getNearExpiry() {
+        return nearExpiry;
+    }
+
+    public void setNearExpiry(List<FoodAlert> nearExpiry) {
+        this.nearExpiry = nearExpiry;
+    }
+
+    public List<FoodAlert> getExpired() {
+        return expired;
+    }
+
+    public void setExpired(List<FoodAlert> expired) {
+        this.expired = expired;
+    }
+
+    public List<FoodAlert> getInsufficient() {
+        return insufficient;
+    }
+
+    public void setInsufficient(List<FoodAlert> insufficient) {
+        this.insufficient = insufficient;
+    }
+
+    public int getNearExpiryCount() {
+        return nearExpiry.size();
+    }
+
+    public int getExpiredCount() {
+        return expired.size();
+    }
+
+    public int getInsufficientCount() {
+        return insufficient.size();
+    }
+
+    public int getTotalCount() {
+        return nearExpiry.size() + expired.size() + insufficient.size();
+    }
+}
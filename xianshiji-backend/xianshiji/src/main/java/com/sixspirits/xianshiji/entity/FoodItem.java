@@ -23,6 +23,12 @@ public class FoodItem {
     private LocalDate purchaseDate;
     private LocalDate expiryDate;
 
+    /**
+     * 进入 NEAR_EXPIRY / EXPIRED 的日期，由 expiryDate 推算
+     */
+    private LocalDate nearExpiryDate;
+    private LocalDate expiredDate;
+
     private String imageUrl;
 
     /**
@@ -38,6 +44,11 @@ public class FoodItem {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    /**
+     * 乐观锁版本号，每次修改加一
+     */
+    private Integer version;
+
     // getter / setter
 
     public Long getId() {
@@ -128,6 +139,22 @@ public class FoodItem {
         this.expiryDate = expiryDate;
     }
 
+    public LocalDate getNearExpiryDate() {
+        return nearExpiryDate;
+    }
+
+    public void setNearExpiryDate(LocalDate nearExpiryDate) {
+        this.nearExpiryDate = nearExpiryDate;
+    }
+
+    public LocalDate getExpiredDate() {
+        return expiredDate;
+    }
+
+    public void setExpiredDate(LocalDate expiredDate) {
+        this.expiredDate = expiredDate;
+    }
+
     public String getImageUrl() {
         return imageUrl;
     }
@@ -168,6 +195,14 @@ public class FoodItem {
         this.updatedAt = updatedAt;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "FoodItem{" +
@@ -182,11 +217,14 @@ public class FoodItem {
                 ", minQuantity=" + minQuantity +
                 ", purchaseDate=" + purchaseDate +
                 ", expiryDate=" + expiryDate +
+                ", nearExpiryDate=" + nearExpiryDate +
+                ", expiredDate=" + expiredDate +
                 ", imageUrl='" + imageUrl + '\'' +
                 ", status='" + status + '\'' +
                 ", isDeleted=" + isDeleted +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,50 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次增量同步的结果：新增或修改的食材、已删除的食材 id，以及下次同步用的令牌
+ */
+public class FoodItemChanges {
+
+    // 为 true 时 items 是完整列表，客户端应替换本地数据而不是合并
+    private boolean full;
+    private List<FoodItem> items = new ArrayList<>();
+    private List<Long> deletedIds = new ArrayList<>();
+    private String syncToken;
+
+    // getter / setter
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<FoodItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<FoodItem> items) {
+        this.items = items;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    public void setSyncToken(String syncToken) {
+        this.syncToken = syncToken;
+    }
+}
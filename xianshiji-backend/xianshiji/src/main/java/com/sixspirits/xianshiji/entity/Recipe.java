@@ -16,6 +16,16 @@ public class Recipe {
     private String cuisineType;
     private Integer servings;
 
+    /**
+     * 创建者的用户ID，只有创建者可以修改和删除；内置菜谱为 null，不能通过接口修改
+     */
+    private Long createdBy;
+
+    /**
+     * 乐观锁版本号，每次修改加一
+     */
+    private Integer version;
+
     // getter / setter
 
     public Long getId() {
@@ -105,4 +115,20 @@ public class Recipe {
     public void setServings(Integer servings) {
         this.servings = servings;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Long getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(Long createdBy) {
+        this.createdBy = createdBy;
+    }
 }
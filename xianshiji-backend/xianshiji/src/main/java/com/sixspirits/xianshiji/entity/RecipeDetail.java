@@ -0,0 +1,41 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 菜谱详情：菜谱本身的字段加上配料列表
+ */
+public class RecipeDetail extends Recipe {
+
+    private List<RecipeIngredient> ingredients = new ArrayList<>();
+
+    public static RecipeDetail of(Recipe recipe, List<RecipeIngredient> ingredients) {
+        RecipeDetail detail = new RecipeDetail();
+        detail.setId(recipe.getId());
+        detail.setName(recipe.getName());
+        detail.setImageUrl(recipe.getImageUrl());
+        detail.setDescription(recipe.getDescription());
+        detail.setSteps(recipe.getSteps());
+        detail.setCreatedAt(recipe.getCreatedAt());
+        detail.setPrepTime(recipe.getPrepTime());
+        detail.setCookTime(recipe.getCookTime());
+        detail.setDifficulty(recipe.getDifficulty());
+        detail.setCuisineType(recipe.getCuisineType());
+        detail.setServings(recipe.getServings());
+        detail.setCreatedBy(recipe.getCreatedBy());
+        detail.setVersion(recipe.getVersion());
+        detail.setIngredients(new ArrayList<>(ingredients));
+        return detail;
+    }
+
+    // getter / setter
+
+    public List<RecipeIngredient> getIngredients() {
+        return ingredients;
+    }
+
+    public void setIngredients(List<RecipeIngredient> ingredients) {
+        this.ingredients = ingredients;
+    }
+}
@@ -0,0 +1,83 @@
+package com.sixspirits.xianshiji.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 菜谱列表中的一项：不含简介和步骤这两个长文本，完整内容由详情接口返回
+ */
+public class RecipeSummary {
+
+    private Long id;
+    private String name;
+    private String imageUrl;
+    private LocalDateTime createdAt;
+    private Integer prepTime;
+    private Integer cookTime;
+    private String difficulty;
+    private String cuisineType;
+    private Integer servings;
+    private Long createdBy;
+    private Integer version;
+
+    public static RecipeSummary of(Recipe recipe) {
+        RecipeSummary summary = new RecipeSummary();
+        summary.id = recipe.getId();
+        summary.name = recipe.getName();
+        summary.imageUrl = recipe.getImageUrl();
+        summary.createdAt = recipe.getCreatedAt();
+        summary.prepTime = recipe.getPrepTime();
+        summary.cookTime = recipe.getCookTime();
+        summary.difficulty = recipe.getDifficulty();
+        summary.cuisineType = recipe.getCuisineType();
+        summary.servings = recipe.getServings();
+        summary.createdBy = recipe.getCreatedBy();
+        summary.version = recipe.getVersion();
+        return summary;
+    }
+
+    // getter
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Integer getPrepTime() {
+        return prepTime;
+    }
+
+    public Integer getCookTime() {
+        return cookTime;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public String getCuisineType() {
+        return cuisineType;
+    }
+
+    public Integer getServings() {
+        return servings;
+    }
+
+    public Long getCreatedBy() {
+        return createdBy;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+}
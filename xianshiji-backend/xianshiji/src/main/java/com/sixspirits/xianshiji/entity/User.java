@@ -1,5 +1,7 @@
 package com.sixspirits.xianshiji.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 
 public class User {
@@ -21,6 +23,11 @@ public class User {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    /**
+     * 最近一次登录时间，登录时先记在内存里，定期批量写入
+     */
+    private LocalDateTime lastLoginAt;
+
     // ===== getter / setter =====
 
     public Long getId() {
@@ -47,6 +54,8 @@ public class User {
         this.email = email;
     }
 
+    // 密码哈希不随用户信息返回给前端
+    @JsonIgnore
     public String getPassword() {
         return password;
     }
@@ -94,4 +103,12 @@ public class User {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public LocalDateTime getLastLoginAt() {
+        return lastLoginAt;
+    }
+
+    public void setLastLoginAt(LocalDateTime lastLoginAt) {
+        this.lastLoginAt = lastLoginAt;
+    }
 }
@@ -0,0 +1,37 @@
+package com.sixspirits.xianshiji.entity;
+
+/**
+ * 用户的公开资料（不含手机号、邮箱和密码），用于展示家庭成员等
+ */
+public class UserProfile {
+
+    private Long id;
+    private String nickname;
+    private String avatarUrl;
+
+    // getter / setter
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public void setNickname(String nickname) {
+        this.nickname = nickname;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sixspirits.xianshiji.event;
+
+import java.time.LocalDate;
+
+/**
+ * 食材状态发生变化（临期、过期、数量不足或恢复正常）
+ */
+public class FoodStatusChangedEvent {
+
+    private final Long userId;
+    private final Long familyId;
+    private final Long itemId;
+    private final String name;
+    private final String oldStatus;
+    private final String newStatus;
+    private final LocalDate expiryDate;
+
+    /**
+     * @param oldStatus 新增的食材为 null
+     */
+    public FoodStatusChangedEvent(Long userId, Long familyId, Long itemId, String name,
+                                  String oldStatus, String newStatus, LocalDate expiryDate) {
+        this.userId = userId;
+        this.familyId = familyId;
+        this.itemId = itemId;
+        this.name = name;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.expiryDate = expiryDate;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getFamilyId() {
+        return familyId;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOldStatus() {
+        return oldStatus;
+    }
+
+    public String getNewStatus() {
+        return newStatus;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+}
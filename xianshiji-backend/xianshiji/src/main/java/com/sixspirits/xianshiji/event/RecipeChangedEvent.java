@@ -0,0 +1,17 @@
+package com.sixspirits.xianshiji.event;
+
+/**
+ * 菜谱或其配料发生变化（新增 / 修改 / 删除）
+ */
+public class RecipeChangedEvent {
+
+    private final Long recipeId;
+
+    public RecipeChangedEvent(Long recipeId) {
+        this.recipeId = recipeId;
+    }
+
+    public Long getRecipeId() {
+        return recipeId;
+    }
+}
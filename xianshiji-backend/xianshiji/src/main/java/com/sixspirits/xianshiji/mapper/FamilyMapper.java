@@ -19,4 +19,9 @@ public interface FamilyMapper {
     int insertUserFamily(UserFamily userFamily);
 
     UserFamily findUserFamily(Long userId, Long familyId);
+
+    /**
+     * 家庭组的全部成员关系，按加入时间排序
+     */
+    List<UserFamily> findFamilyMembers(Long familyId);
 }
@@ -0,0 +1,37 @@
+package com.sixspirits.xianshiji.mapper;
+
+import com.sixspirits.xianshiji.entity.FoodAlertEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface FoodAlertEventMapper {
+
+    int insert(FoodAlertEvent event);
+
+    /**
+     * @return 表为空时返回 0
+     */
+    long findMaxId();
+
+    /**
+     * id 大于 afterId 的事件，按 id 升序
+     */
+    List<FoodAlertEvent> findAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    List<FoodAlertEvent> findByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 断线重连时补发：用户自己的食材以及所在家庭组的食材，id 大于 afterId，按 id 升序
+     */
+    List<FoodAlertEvent> findForUser(@Param("userId") Long userId,
+                                     @Param("familyIds") Collection<Long> familyIds,
+                                     @Param("afterId") long afterId,
+                                     @Param("limit") int limit);
+
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
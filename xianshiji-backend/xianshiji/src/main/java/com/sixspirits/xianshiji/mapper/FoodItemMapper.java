@@ -1,30 +1,151 @@
 package com.sixspirits.xianshiji.mapper;
 
+import com.sixspirits.xianshiji.common.PageCursor;
 import com.sixspirits.xianshiji.entity.FoodItem;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Mapper
 public interface FoodItemMapper {
 
     List<FoodItem> findByUserId(@Param("userId") Long userId);
 
+    /**
+     * @param cursor 为 null 时从第一页开始
+     */
+    List<FoodItem> findPageByUserId(@Param("userId") Long userId,
+                                    @Param("cursor") PageCursor cursor,
+                                    @Param("limit") int limit);
+
+    List<FoodItem> findByFamilyId(@Param("familyId") Long familyId);
+
+    List<FoodItem> findPageByFamilyId(@Param("familyId") Long familyId,
+                                      @Param("cursor") PageCursor cursor,
+                                      @Param("limit") int limit);
+
+    /**
+     * 需要提醒的食材（只含提醒列表用到的列），状态由调用方按当天重新计算
+     * @param nearExpiryLimit 过期日期不晚于该日期的 NORMAL 行也会返回
+     */
+    List<FoodItem> findAlertsByUserId(@Param("userId") Long userId,
+                                      @Param("nearExpiryLimit") LocalDate nearExpiryLimit);
+
+    List<FoodItem> findAlertsByFamilyId(@Param("familyId") Long familyId,
+                                        @Param("nearExpiryLimit") LocalDate nearExpiryLimit);
+
     List<FoodItem> findByUserIdAndCategory(@Param("userId") Long userId, @Param("category") String category);
 
-    List<FoodItem> findByUserIdAndKeyword(@Param("userId") Long userId, @Param("keyword") String keyword);
+    /**
+     * 按条件查询用户食材，参数为 null 时不参与过滤
+     */
+    List<FoodItem> findByCondition(@Param("userId") Long userId,
+                                   @Param("status") String status,
+                                   @Param("category") String category,
+                                   @Param("expiryFrom") LocalDate expiryFrom,
+                                   @Param("expiryTo") LocalDate expiryTo,
+                                   @Param("today") LocalDate today,
+                                   @Param("nearExpiryLimit") LocalDate nearExpiryLimit);
+
+    /**
+     * 查询 since 之后新增、修改或软删除的食材
+     */
+    List<FoodItem> findChangedSince(@Param("userId") Long userId,
+                                    @Param("since") LocalDateTime since,
+                                    @Param("limit") int limit);
+
+    LocalDateTime selectNow();
 
     FoodItem findById(@Param("id") Long id);
 
+    /**
+     * 按 id 查询，包括已软删除的
+     */
+    FoodItem findByIdIncludingDeleted(@Param("id") Long id);
+
+    /**
+     * 按 id 查询并加行锁直到事务结束，包括已软删除的
+     */
+    FoodItem findByIdForUpdate(@Param("id") Long id);
+
     int insert(FoodItem foodItem);
 
+    /**
+     * 多行插入，生成的主键回填到各个食材对象
+     */
+    int insertBatch(@Param("items") List<FoodItem> items);
+
+    /**
+     * 查询并锁定用户名下的多个食材，不属于该用户或已删除的不返回
+     */
+    List<FoodItem> findByIdsForUpdate(@Param("userId") Long userId, @Param("ids") List<Long> ids);
+
     /**
      * 更新食材信息
-     * @param foodItem 食材对象
-     * @return 影响的行数
+     * @param item 食材对象
+     * @param userId 操作者，只更新其名下的食材
+     * @return 影响的行数；食材不存在或不属于该用户时为 0
      */
-    int updateById(FoodItem foodItem);
+    int updateById(@Param("item") FoodItem item, @Param("userId") Long userId);
+
+    /**
+     * 只更新 fields 中列出的字段，食材属于 userId 且版本号一致时才更新并加一
+     * @param expectedVersion 为空时不校验版本号
+     * @return 影响的行数，不属于该用户或版本号不一致时为 0
+     */
+    int patchById(@Param("item") FoodItem item,
+                  @Param("userId") Long userId,
+                  @Param("fields") Set<String> fields,
+                  @Param("expectedVersion") Integer expectedVersion);
+
+    /**
+     * 数量加上 delta（可为负），同一语句里重新计算状态，减到 0 时软删除
+     * @param familyIds 操作者所在的家庭组，这些家庭组的共享食材也可修改
+     * @return 影响的行数；食材不存在、无权限或数量不够扣时为 0
+     */
+    int applyQuantityDelta(@Param("id") Long id,
+                           @Param("userId") Long userId,
+                           @Param("familyIds") Collection<Long> familyIds,
+                           @Param("delta") BigDecimal delta,
+                           @Param("today") LocalDate today,
+                           @Param("nearExpiryLimit") LocalDate nearExpiryLimit);
 
     int softDeleteById(@Param("id") Long id);
+
+    /**
+     * 软删除本人的食材
+     * @return 影响的行数；食材不存在、已删除或不属于该用户时为 0
+     */
+    int softDeleteOwned(@Param("id") Long id, @Param("userId") Long userId);
+
+    int softDeleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 批量回写状态，一条语句更新多行
+     * @param items 状态有变化的食材（需包含 id 和 status）
+     * @return 影响的行数
+     */
+    int batchUpdateStatus(@Param("items") List<FoodItem> items);
+
+    /**
+     * 为缺少状态切换日期的行补齐，每次最多 limit 行
+     */
+    int backfillTransitionDates(@Param("nearExpiryDays") int nearExpiryDays, @Param("limit") int limit);
+
+    /**
+     * 巡检时将被 markExpired 切换为 EXPIRED 的食材（只含 id、归属、名称、状态和过期日期）
+     */
+    List<FoodItem> findExpiredTransitions(@Param("today") LocalDate today);
+
+    List<FoodItem> findNearExpiryTransitions(@Param("today") LocalDate today);
+
+    int markExpired(@Param("today") LocalDate today);
+
+    int markNearExpiry(@Param("today") LocalDate today);
 }
@@ -0,0 +1,51 @@
+package com.sixspirits.xianshiji.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Mapper
+public interface FoodStatsMapper {
+
+    /**
+     * 按增量累加某个范围、某个分类的计数，行不存在时插入
+     */
+    int applyDelta(@Param("scopeType") String scopeType,
+                   @Param("scopeId") Long scopeId,
+                   @Param("category") String category,
+                   @Param("items") int items,
+                   @Param("nearExpiry") int nearExpiry,
+                   @Param("expired") int expired,
+                   @Param("insufficient") int insufficient);
+
+    /**
+     * 汇总某个范围的统计，键为 totalCategories / totalItems / nearExpiry / expired / insufficient
+     */
+    Map<String, Object> sumByScope(@Param("scopeType") String scopeType, @Param("scopeId") Long scopeId);
+
+    int deleteByScope(@Param("scopeType") String scopeType, @Param("scopeId") Long scopeId);
+
+    /**
+     * 从 food_item 重新聚合某个范围的统计（GROUP BY 兜底）
+     */
+    int rebuildScope(@Param("scopeType") String scopeType, @Param("scopeId") Long scopeId);
+
+    int deleteAllScopes(@Param("scopeType") String scopeType);
+
+    /**
+     * 从 food_item 重新聚合某类范围下所有用户或家庭组的统计
+     */
+    int rebuildAllScopes(@Param("scopeType") String scopeType);
+
+    /**
+     * 过期巡检前，按即将切换为 EXPIRED 的行调整计数
+     */
+    int applyExpiredTransition(@Param("scopeType") String scopeType, @Param("today") LocalDate today);
+
+    /**
+     * 过期巡检前，按即将切换为 NEAR_EXPIRY 的行调整计数
+     */
+    int applyNearExpiryTransition(@Param("scopeType") String scopeType, @Param("today") LocalDate today);
+}
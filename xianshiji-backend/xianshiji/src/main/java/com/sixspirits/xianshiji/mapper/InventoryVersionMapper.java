@@ -0,0 +1,15 @@
+package com.sixspirits.xianshiji.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface InventoryVersionMapper {
+
+    /**
+     * @return 尚无记录时返回 null
+     */
+    Long findVersion(@Param("scopeType") String scopeType, @Param("scopeId") Long scopeId);
+
+    int increment(@Param("scopeType") String scopeType, @Param("scopeId") Long scopeId);
+}
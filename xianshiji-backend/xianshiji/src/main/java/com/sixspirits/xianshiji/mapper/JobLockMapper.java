@@ -0,0 +1,24 @@
+package com.sixspirits.xianshiji.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface JobLockMapper {
+
+    int insertIfAbsent(@Param("name") String name);
+
+    /**
+     * 租约已过期时抢占锁
+     * @return 1 表示抢到，0 表示其他节点持有
+     */
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("leaseSeconds") int leaseSeconds);
+
+    int release(@Param("name") String name, @Param("owner") String owner);
+
+    /**
+     * 标记一次性任务已完成，之后 tryAcquire 总是返回 0
+     */
+    int finish(@Param("name") String name, @Param("owner") String owner);
+}
@@ -9,9 +9,20 @@ import java.util.List;
 @Mapper
 public interface RecipeIngredientMapper {
 
+    List<RecipeIngredient> findAll();
+
     List<RecipeIngredient> findByRecipeId(@Param("recipeId") Long recipeId);
 
     int insert(RecipeIngredient recipeIngredient);
 
+    /**
+     * 多行插入，生成的主键回填到各个配料对象
+     */
+    int insertBatch(@Param("items") List<RecipeIngredient> items);
+
+    int updateById(RecipeIngredient recipeIngredient);
+
+    int deleteByIds(@Param("ids") List<Long> ids);
+
     int deleteByRecipeId(@Param("recipeId") Long recipeId);
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Set;
 
 @Mapper
 public interface RecipeMapper {
@@ -13,13 +14,28 @@ public interface RecipeMapper {
 
     List<Recipe> findByCuisineType(@Param("cuisineType") String cuisineType);
 
-    List<Recipe> findByKeyword(@Param("keyword") String keyword);
-
     Recipe findById(@Param("id") Long id);
 
     int insert(Recipe recipe);
 
+    /**
+     * 整体更新，recipe.createdBy 为当前用户，不是创建者时不更新
+     * @return 影响的行数
+     */
     int updateById(Recipe recipe);
 
-    int deleteById(@Param("id") Long id);
+    /**
+     * 只更新 fields 中列出的字段，版本号加一
+     * @param userId 当前用户，不是创建者时不更新
+     * @param expectedVersion 不为空时版本号一致才更新
+     */
+    int patchById(@Param("recipe") Recipe recipe,
+                  @Param("fields") Set<String> fields,
+                  @Param("expectedVersion") Integer expectedVersion,
+                  @Param("userId") Long userId);
+
+    /**
+     * @param userId 当前用户，不是创建者时不删除
+     */
+    int deleteById(@Param("id") Long id, @Param("userId") Long userId);
 }
\ No newline at end of file
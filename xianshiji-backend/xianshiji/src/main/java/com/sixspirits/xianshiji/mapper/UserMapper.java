@@ -1,19 +1,45 @@
 package com.sixspirits.xianshiji.mapper;
 
+import com.sixspirits.xianshiji.common.PageCursor;
 import com.sixspirits.xianshiji.entity.User;
+import com.sixspirits.xianshiji.entity.UserProfile;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface UserMapper {
     List<User> findAll();
 
-    User findByPhoneOrEmail(String account);
+    List<User> findPage(@Param("cursor") PageCursor cursor, @Param("limit") int limit);
+
+    User findByPhone(String phone);
+
+    User findByEmail(String email);
 
     User findById(Long id);
 
+    /**
+     * 批量查询用户的公开资料（id、昵称、头像）
+     */
+    List<UserProfile> findProfilesByIds(@Param("ids") List<Long> ids);
+
     int insert(User user);
 
     int updateById(User user);
+
+    /**
+     * 替换密码哈希，仅当库里仍是 oldPassword 时生效
+     */
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("oldPassword") String oldPassword,
+            @Param("newPassword") String newPassword);
+
+    /**
+     * 批量写入最近登录时间（只会往后推），不改动 updated_at
+     * @param logins 用户ID -> 登录时间
+     */
+    int updateLastLoginAt(@Param("logins") Map<Long, LocalDateTime> logins);
 }
@@ -0,0 +1,53 @@
+package com.sixspirits.xianshiji.search;
+
+import com.sixspirits.xianshiji.entity.Recipe;
+
+import java.util.List;
+
+/**
+ * 按库存匹配出的可做菜谱
+ */
+public class CookableRecipe {
+
+    private final Recipe recipe;
+    private final int matchedCount;
+    private final int totalCount;
+    private final List<String> matchedIngredients;
+    private final List<String> expiringIngredients;
+
+    public CookableRecipe(Recipe recipe, int matchedCount, int totalCount,
+                          List<String> matchedIngredients, List<String> expiringIngredients) {
+        this.recipe = recipe;
+        this.matchedCount = matchedCount;
+        this.totalCount = totalCount;
+        this.matchedIngredients = matchedIngredients;
+        this.expiringIngredients = expiringIngredients;
+    }
+
+    public Recipe getRecipe() {
+        return recipe;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getMissingCount() {
+        return totalCount - matchedCount;
+    }
+
+    public List<String> getMatchedIngredients() {
+        return matchedIngredients;
+    }
+
+    /**
+     * 用到的临期食材
+     */
+    public List<String> getExpiringIngredients() {
+        return expiringIngredients;
+    }
+}
@@ -0,0 +1,278 @@
+package com.sixspirits.xianshiji.search;
+
+import com.sixspirits.xianshiji.cache.TtlCache;
+import com.sixspirits.xianshiji.entity.FoodItem;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 按用户划分的食材内存搜索索引。
+ * 名称和分类按原文、全拼、首字母三种形式切成单字/二元组建倒排表，
+ * 第一次搜索时整体加载，之后由 FoodItemService 的写操作在事务提交后增量维护。
+ * 索引里存的是食材的副本，搜索结果也是副本，调用方可以随意修改。
+ */
+@Component
+public class FoodSearchIndex {
+
+    private static final int MAX_USERS = 10_000;
+    // 过期后下次搜索时整体重建
+    private static final long TTL_MILLIS = 10 * 60 * 1000L;
+    // 同一用户的加载和增量更新串行执行，避免加载期间提交的写入被旧数据覆盖
+    private static final int LOCK_STRIPES = 64;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final TtlCache<Long, UserIndex> indexes = new TtlCache<>(MAX_USERS, TTL_MILLIS);
+
+    public FoodSearchIndex() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 搜索用户的食材，按匹配程度排序，匹配程度相同时临近过期的在前
+     * @param loader 索引不存在或过期时用于加载用户全部食材
+     * @param limit 最多返回条数，小于等于 0 表示不限
+     */
+    public List<FoodItem> search(Long userId, String keyword, int limit, Function<Long, List<FoodItem>> loader) {
+        String query = TextAnalyzer.normalize(keyword);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        UserIndex index;
+        synchronized (lockFor(userId)) {
+            index = indexes.get(userId);
+            if (index == null) {
+                index = new UserIndex(loader.apply(userId));
+                indexes.put(userId, index);
+            }
+        }
+        return index.search(query, limit);
+    }
+
+    /**
+     * 新增或更新一个食材；在写事务中调用时提交后才生效，回滚则不改动索引。
+     * 该用户的索引尚未加载时忽略，下次搜索会整体加载
+     */
+    public void upsert(FoodItem item) {
+        // 按调用时的状态复制一份，调用方之后的修改不影响索引
+        FoodItem copy = copy(item);
+        afterCommit(copy.getUserId(), index -> index.upsert(copy));
+    }
+
+    public void remove(Long userId, Long itemId) {
+        afterCommit(userId, index -> index.remove(itemId));
+    }
+
+    public void invalidate(Long userId) {
+        indexes.invalidate(userId);
+    }
+
+    private void afterCommit(Long userId, Consumer<UserIndex> change) {
+        if (userId == null) {
+            return;
+        }
+        Runnable apply = () -> {
+            synchronized (lockFor(userId)) {
+                UserIndex index = indexes.get(userId);
+                if (index != null) {
+                    change.accept(index);
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    private Object lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static FoodItem copy(FoodItem item) {
+        FoodItem copy = new FoodItem();
+        copy.setId(item.getId());
+        copy.setUserId(item.getUserId());
+        copy.setFamilyId(item.getFamilyId());
+        copy.setName(item.getName());
+        copy.setCategory(item.getCategory());
+        copy.setBarcode(item.getBarcode());
+        copy.setQuantity(item.getQuantity());
+        copy.setUnit(item.getUnit());
+        copy.setMinQuantity(item.getMinQuantity());
+        copy.setPurchaseDate(item.getPurchaseDate());
+        copy.setExpiryDate(item.getExpiryDate());
+        copy.setNearExpiryDate(item.getNearExpiryDate());
+        copy.setExpiredDate(item.getExpiredDate());
+        copy.setImageUrl(item.getImageUrl());
+        copy.setStatus(item.getStatus());
+        copy.setIsDeleted(item.getIsDeleted());
+        copy.setCreatedAt(item.getCreatedAt());
+        copy.setUpdatedAt(item.getUpdatedAt());
+        copy.setVersion(item.getVersion());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final FoodItem item;
+        private final String name;
+        private final String namePinyin;
+        private final String nameInitials;
+        private final String category;
+        private final String categoryPinyin;
+        private final String categoryInitials;
+        private final Set<String> grams = new HashSet<>();
+
+        private Entry(FoodItem item) {
+            this.item = item;
+            this.name = TextAnalyzer.normalize(item.getName());
+            this.namePinyin = PinyinUtils.toPinyin(name);
+            this.nameInitials = PinyinUtils.toInitials(name);
+            this.category = TextAnalyzer.normalize(item.getCategory());
+            this.categoryPinyin = PinyinUtils.toPinyin(category);
+            this.categoryInitials = PinyinUtils.toInitials(category);
+            for (String form : new String[]{name, namePinyin, nameInitials, category, categoryPinyin, categoryInitials}) {
+                grams.addAll(TextAnalyzer.grams(form));
+            }
+        }
+
+        /**
+         * 匹配得分，0 表示不匹配（倒排表只保证二元组都出现，不保证连续）
+         */
+        private int score(String query) {
+            if (name.equals(query)) {
+                return 100;
+            }
+            if (name.startsWith(query)) {
+                return 80;
+            }
+            if (name.contains(query)) {
+                return 60;
+            }
+            if (nameInitials.startsWith(query)) {
+                return 50;
+            }
+            if (namePinyin.startsWith(query)) {
+                return 45;
+            }
+            if (nameInitials.contains(query)) {
+                return 35;
+            }
+            if (namePinyin.contains(query)) {
+                return 30;
+            }
+            if (category.contains(query)) {
+                return 20;
+            }
+            if (categoryInitials.contains(query) || categoryPinyin.contains(query)) {
+                return 10;
+            }
+            return 0;
+        }
+    }
+
+    private static final class UserIndex {
+        private static final Comparator<LocalDate> EXPIRY_ORDER =
+                Comparator.nullsLast(Comparator.naturalOrder());
+
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+
+        private UserIndex(List<FoodItem> items) {
+            // 加载的列表只在这里使用，不必复制
+            for (FoodItem item : items) {
+                upsert(item);
+            }
+        }
+
+        private synchronized void upsert(FoodItem item) {
+            if (item.getId() == null) {
+                return;
+            }
+            remove(item.getId());
+            Entry entry = new Entry(item);
+            entries.put(item.getId(), entry);
+            for (String gram : entry.grams) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(item.getId());
+            }
+        }
+
+        private synchronized void remove(Long itemId) {
+            Entry entry = entries.remove(itemId);
+            if (entry == null) {
+                return;
+            }
+            for (String gram : entry.grams) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(itemId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        private synchronized List<FoodItem> search(String query, int limit) {
+            // 从最短的倒排表开始求交集
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : TextAnalyzer.queryGrams(query)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            List<Entry> matched = new ArrayList<>();
+            Map<Entry, Integer> scores = new HashMap<>();
+            for (Long id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                if (!inAll) {
+                    continue;
+                }
+                Entry entry = entries.get(id);
+                int score = entry.score(query);
+                if (score > 0) {
+                    matched.add(entry);
+                    scores.put(entry, score);
+                }
+            }
+
+            matched.sort(Comparator.<Entry>comparingInt(scores::get).reversed()
+                    .thenComparing(e -> e.item.getExpiryDate(), EXPIRY_ORDER));
+            List<FoodItem> result = new ArrayList<>();
+            for (Entry entry : matched) {
+                if (limit > 0 && result.size() >= limit) {
+                    break;
+                }
+                result.add(copy(entry.item));
+            }
+            return result;
+        }
+    }
+}
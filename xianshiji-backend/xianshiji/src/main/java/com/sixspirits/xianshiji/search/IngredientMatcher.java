@@ -0,0 +1,242 @@
+package com.sixspirits.xianshiji.search;
+
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.cache.RefreshingSnapshot;
+import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.entity.RecipeIngredient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * “现在能做什么菜”：把配料名归一成整数编号，为每个配料维护包含它的菜谱列表（倒排表）。
+ * 匹配时只遍历库存命中的配料的倒排表累加得分，代价与命中的菜谱数成正比，
+ * 不需要对全部菜谱 × 全部库存做嵌套循环。
+ * 字典由 RecipeCatalog 快照派生，与菜谱搜索共用同一套过期和变更重建机制。
+ */
+@Component
+public class IngredientMatcher {
+
+    // 临期食材权重更高，优先消耗；已过期的不参与匹配
+    private static final float NORMAL_WEIGHT = 1.0f;
+    private static final float NEAR_EXPIRY_WEIGHT = 2.0f;
+    // 名称互相包含时，被包含的一方至少这么长；单字名称（油、盐）只做完全匹配，否则“油”会命中酱油、蚝油
+    private static final int MIN_PARTIAL_LENGTH = 2;
+
+    private final RefreshingSnapshot<Snapshot> snapshot;
+
+    public IngredientMatcher(RecipeCatalog recipeCatalog) {
+        this.snapshot = new RefreshingSnapshot<>("ingredient-matcher", RecipeCatalog.TTL_MILLIS,
+                () -> recipeCatalog.derive(Snapshot::new));
+        recipeCatalog.addChangeListener(snapshot::refresh);
+    }
+
+    /**
+     * 按库存为菜谱排序：库存覆盖的配料越多越靠前，用到临期食材的额外加分
+     * @param inventory 用户或家庭的库存（状态需已计算）
+     */
+    public List<CookableRecipe> match(List<FoodItem> inventory, int limit) {
+        return snapshot.get().match(inventory, limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    private static final class Snapshot {
+        private final Recipe[] recipes;
+        private final String[] ingredientNames;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        // 配料名的二元组 -> 配料编号，用于找出“包含库存名称”的配料
+        private final Map<String, int[]> nameGrams = new HashMap<>();
+        // 配料编号 -> 包含它的菜谱下标（升序）
+        private final int[][] postings;
+        // 菜谱下标 -> 配料种数
+        private final int[] ingredientCounts;
+
+        private Snapshot(List<Recipe> recipeList, Map<Long, List<RecipeIngredient>> ingredients) {
+            recipes = recipeList.toArray(new Recipe[0]);
+
+            List<String> names = new ArrayList<>();
+            List<Set<Integer>> recipeSets = new ArrayList<>();
+            Map<Integer, Set<Integer>> byRecipe = new HashMap<>();
+            for (int recipe = 0; recipe < recipes.length; recipe++) {
+                for (RecipeIngredient ingredient : ingredients.getOrDefault(recipes[recipe].getId(), List.of())) {
+                    String name = TextAnalyzer.normalize(ingredient.getIngredientName());
+                    if (name.isEmpty()) {
+                        continue;
+                    }
+                    Integer id = dictionary.get(name);
+                    if (id == null) {
+                        id = names.size();
+                        dictionary.put(name, id);
+                        names.add(name);
+                        recipeSets.add(new LinkedHashSet<>());
+                    }
+                    recipeSets.get(id).add(recipe);
+                    byRecipe.computeIfAbsent(recipe, r -> new LinkedHashSet<>()).add(id);
+                }
+            }
+            ingredientNames = names.toArray(new String[0]);
+
+            postings = new int[ingredientNames.length][];
+            for (int id = 0; id < postings.length; id++) {
+                postings[id] = recipeSets.get(id).stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+            ingredientCounts = new int[recipes.length];
+            for (Map.Entry<Integer, Set<Integer>> entry : byRecipe.entrySet()) {
+                ingredientCounts[entry.getKey()] = entry.getValue().size();
+            }
+
+            Map<String, List<Integer>> grams = new HashMap<>();
+            for (int id = 0; id < ingredientNames.length; id++) {
+                for (String gram : TextAnalyzer.grams(ingredientNames[id])) {
+                    grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(id);
+                }
+            }
+            for (Map.Entry<String, List<Integer>> entry : grams.entrySet()) {
+                nameGrams.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+
+        private List<CookableRecipe> match(List<FoodItem> inventory, int limit) {
+            // 1. 库存名称 -> 配料编号，同一配料取最高权重
+            float[] ingredientWeights = new float[ingredientNames.length];
+            List<Integer> hitIngredients = new ArrayList<>();
+            for (FoodItem item : inventory) {
+                if ("EXPIRED".equals(item.getStatus())) {
+                    continue;
+                }
+                float weight = "NEAR_EXPIRY".equals(item.getStatus()) ? NEAR_EXPIRY_WEIGHT : NORMAL_WEIGHT;
+                for (int id : resolve(TextAnalyzer.normalize(item.getName()))) {
+                    if (ingredientWeights[id] == 0) {
+                        hitIngredients.add(id);
+                    }
+                    ingredientWeights[id] = Math.max(ingredientWeights[id], weight);
+                }
+            }
+            if (hitIngredients.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            // 2. 遍历命中配料的倒排表累加
+            float[] scores = new float[recipes.length];
+            int[] matched = new int[recipes.length];
+            int[] touched = new int[recipes.length];
+            int touchedCount = 0;
+            for (int id : hitIngredients) {
+                float weight = ingredientWeights[id];
+                for (int recipe : postings[id]) {
+                    if (matched[recipe] == 0) {
+                        touched[touchedCount++] = recipe;
+                    }
+                    matched[recipe]++;
+                    scores[recipe] += weight;
+                }
+            }
+
+            // 3. 得分按配料种数归一，取前 limit 个
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = scores[touched[i]] / ingredientCounts[touched[i]];
+            }
+            int capacity = limit > 0 ? limit : touchedCount;
+            PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> compare(scores, matched, a, b));
+            for (int i = 0; i < touchedCount; i++) {
+                int recipe = touched[i];
+                if (top.size() < capacity) {
+                    top.add(recipe);
+                } else if (compare(scores, matched, recipe, top.peek()) > 0) {
+                    top.poll();
+                    top.add(recipe);
+                }
+            }
+
+            List<Integer> ordered = new ArrayList<>(top);
+            ordered.sort((a, b) -> compare(scores, matched, b, a));
+            List<CookableRecipe> result = new ArrayList<>(ordered.size());
+            for (int recipe : ordered) {
+                result.add(describe(recipe, matched[recipe], hitIngredients, ingredientWeights));
+            }
+            return result;
+        }
+
+        private static int compare(float[] scores, int[] matched, int a, int b) {
+            int byScore = Float.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(matched[a], matched[b]);
+        }
+
+        /**
+         * 库存名称对应的配料：完全相同、配料名包含库存名（鸡蛋 -> 土鸡蛋）、库存名包含配料名（新鲜鸡蛋 -> 鸡蛋），
+         * 后两种要求被包含的名称不少于 MIN_PARTIAL_LENGTH 个字
+         */
+        private Set<Integer> resolve(String name) {
+            Set<Integer> ids = new LinkedHashSet<>();
+            if (name.isEmpty()) {
+                return ids;
+            }
+            Integer exact = dictionary.get(name);
+            if (exact != null) {
+                ids.add(exact);
+            }
+            if (name.length() < MIN_PARTIAL_LENGTH) {
+                return ids;
+            }
+
+            int[] candidates = null;
+            for (String gram : TextAnalyzer.queryGrams(name)) {
+                int[] list = nameGrams.get(gram);
+                if (list == null) {
+                    candidates = null;
+                    break;
+                }
+                if (candidates == null || list.length < candidates.length) {
+                    candidates = list;
+                }
+            }
+            if (candidates != null) {
+                for (int id : candidates) {
+                    if (ingredientNames[id].contains(name)) {
+                        ids.add(id);
+                    }
+                }
+            }
+
+            for (int start = 0; start < name.length(); start++) {
+                for (int end = start + MIN_PARTIAL_LENGTH; end <= name.length(); end++) {
+                    Integer id = dictionary.get(name.substring(start, end));
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
+            }
+            return ids;
+        }
+
+        private CookableRecipe describe(int recipe, int matchedCount, List<Integer> hitIngredients,
+                                        float[] ingredientWeights) {
+            List<String> matchedNames = new ArrayList<>();
+            List<String> expiringNames = new ArrayList<>();
+            for (int id : hitIngredients) {
+                if (Arrays.binarySearch(postings[id], recipe) >= 0) {
+                    matchedNames.add(ingredientNames[id]);
+                    if (ingredientWeights[id] >= NEAR_EXPIRY_WEIGHT) {
+                        expiringNames.add(ingredientNames[id]);
+                    }
+                }
+            }
+            return new CookableRecipe(recipes[recipe], matchedCount, ingredientCounts[recipe],
+                    Collections.unmodifiableList(matchedNames), Collections.unmodifiableList(expiringNames));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.sixspirits.xianshiji.search;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.Locale;
+
+/**
+ * 汉字转拼音。多音字取第一个读音，非汉字原样保留（转小写）
+ */
+public final class PinyinUtils {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtils() {
+    }
+
+    /**
+     * 全拼，例如 西红柿 -> xihongshi
+     */
+    public static String toPinyin(String text) {
+        return convert(text, false);
+    }
+
+    /**
+     * 首字母，例如 西红柿 -> xhs
+     */
+    public static String toInitials(String text) {
+        return convert(text, true);
+    }
+
+    private static String convert(String text, boolean initialsOnly) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length() * (initialsOnly ? 1 : 4));
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String pinyin = readingOf(c);
+            if (pinyin == null) {
+                sb.append(Character.toLowerCase(c));
+            } else if (initialsOnly) {
+                sb.append(pinyin.charAt(0));
+            } else {
+                sb.append(pinyin);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String readingOf(char c) {
+        if (Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) {
+            return null;
+        }
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings != null && readings.length > 0 && !readings[0].isEmpty() ? readings[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+}
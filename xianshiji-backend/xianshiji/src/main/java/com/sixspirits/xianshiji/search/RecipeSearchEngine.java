@@ -0,0 +1,161 @@
+package com.sixspirits.xianshiji.search;
+
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.cache.RefreshingSnapshot;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.entity.RecipeIngredient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 菜谱全文检索：在名称、简介、菜系和配料名上建立倒排索引，按 BM25F 打分。
+ * 索引是由 RecipeCatalog 快照派生的不可变快照，目录变更后在后台线程整体重建并替换，
+ * 查询和重建都不访问数据库。
+ */
+@Component
+public class RecipeSearchEngine {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float INGREDIENT_WEIGHT = 2.0f;
+    private static final float CUISINE_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private final RefreshingSnapshot<Snapshot> snapshot;
+
+    public RecipeSearchEngine(RecipeCatalog recipeCatalog) {
+        // 过期时从目录重建，顺带触发目录自身的过期重建，目录替换后再重建一次
+        this.snapshot = new RefreshingSnapshot<>("recipe-search", RecipeCatalog.TTL_MILLIS,
+                () -> recipeCatalog.derive(Snapshot::new));
+        recipeCatalog.addChangeListener(snapshot::refresh);
+    }
+
+    /**
+     * @param limit 最多返回条数，小于等于 0 表示不限
+     */
+    public List<Recipe> search(String keyword, int limit) {
+        String query = TextAnalyzer.normalize(keyword);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return snapshot.get().search(query, limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot.shutdown();
+    }
+
+    private static final class Snapshot {
+        private final Recipe[] docs;
+        private final float[] docLengths;
+        private final float avgDocLength;
+        private final Map<String, int[]> postingDocs = new HashMap<>();
+        private final Map<String, float[]> postingFreqs = new HashMap<>();
+
+        private Snapshot(List<Recipe> recipes, Map<Long, List<RecipeIngredient>> ingredients) {
+            docs = recipes.toArray(new Recipe[0]);
+            docLengths = new float[docs.length];
+
+            Map<String, List<Integer>> docIds = new HashMap<>();
+            Map<String, List<Float>> freqs = new HashMap<>();
+            float totalLength = 0;
+            for (int doc = 0; doc < docs.length; doc++) {
+                Recipe recipe = docs[doc];
+                Map<String, Float> termFreqs = new HashMap<>();
+                docLengths[doc] += addField(termFreqs, recipe.getName(), NAME_WEIGHT);
+                docLengths[doc] += addField(termFreqs, recipe.getCuisineType(), CUISINE_WEIGHT);
+                docLengths[doc] += addField(termFreqs, recipe.getDescription(), DESCRIPTION_WEIGHT);
+                for (RecipeIngredient ingredient : ingredients.getOrDefault(recipe.getId(), List.of())) {
+                    docLengths[doc] += addField(termFreqs, ingredient.getIngredientName(), INGREDIENT_WEIGHT);
+                }
+                totalLength += docLengths[doc];
+                for (Map.Entry<String, Float> entry : termFreqs.entrySet()) {
+                    docIds.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(doc);
+                    freqs.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(entry.getValue());
+                }
+            }
+            avgDocLength = docs.length > 0 ? Math.max(totalLength / docs.length, 1f) : 1f;
+
+            for (Map.Entry<String, List<Integer>> entry : docIds.entrySet()) {
+                List<Integer> ids = entry.getValue();
+                List<Float> tf = freqs.get(entry.getKey());
+                int[] idArray = new int[ids.size()];
+                float[] tfArray = new float[ids.size()];
+                for (int i = 0; i < ids.size(); i++) {
+                    idArray[i] = ids.get(i);
+                    tfArray[i] = tf.get(i);
+                }
+                postingDocs.put(entry.getKey(), idArray);
+                postingFreqs.put(entry.getKey(), tfArray);
+            }
+        }
+
+        /**
+         * 把一个字段的词频按权重累加进文档，返回加权后的字段长度
+         */
+        private static float addField(Map<String, Float> termFreqs, String text, float weight) {
+            String normalized = TextAnalyzer.normalize(text);
+            if (normalized.isEmpty()) {
+                return 0;
+            }
+            // 按出现次数计词频，单字和二元组都计入
+            for (int i = 0; i < normalized.length(); i++) {
+                termFreqs.merge(normalized.substring(i, i + 1), weight, Float::sum);
+                if (i + 1 < normalized.length()) {
+                    termFreqs.merge(normalized.substring(i, i + 2), weight, Float::sum);
+                }
+            }
+            return normalized.length() * weight;
+        }
+
+        private List<Recipe> search(String query, int limit) {
+            float[] scores = new float[docs.length];
+            int n = docs.length;
+            for (String term : TextAnalyzer.queryGrams(query)) {
+                int[] ids = postingDocs.get(term);
+                if (ids == null) {
+                    continue;
+                }
+                float[] tfs = postingFreqs.get(term);
+                double idf = Math.log(1 + (n - ids.length + 0.5) / (ids.length + 0.5));
+                for (int i = 0; i < ids.length; i++) {
+                    int doc = ids[i];
+                    float tf = tfs[i];
+                    float norm = K1 * (1 - B + B * docLengths[doc] / avgDocLength);
+                    scores[doc] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            // 只保留前 limit 个时用小顶堆，避免对全部命中排序
+            int capacity = limit > 0 ? limit : n;
+            PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Float.compare(scores[a], scores[b]));
+            for (int doc = 0; doc < n; doc++) {
+                if (scores[doc] <= 0) {
+                    continue;
+                }
+                if (top.size() < capacity) {
+                    top.add(doc);
+                } else if (scores[doc] > scores[top.peek()]) {
+                    top.poll();
+                    top.add(doc);
+                }
+            }
+            List<Recipe> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                result.add(docs[top.poll()]);
+            }
+            Collections.reverse(result);
+            return result;
+        }
+    }
+}
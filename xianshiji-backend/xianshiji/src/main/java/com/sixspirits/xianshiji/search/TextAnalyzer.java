@@ -0,0 +1,57 @@
+package com.sixspirits.xianshiji.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索用的文本切分：统一大小写、去空白，按单字和相邻两字切分（中文没有分词时的常用做法）
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 单字 + 二元组，用于建立索引
+     */
+    public static Set<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 1));
+            if (i + 1 < normalized.length()) {
+                grams.add(normalized.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询词的切分：单字查询用单字，否则只用二元组
+     */
+    public static Set<String> queryGrams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (normalized.length() == 1) {
+            grams.add(normalized);
+            return grams;
+        }
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 2));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sixspirits.xianshiji.security;
+
+import com.sixspirits.xianshiji.entity.Family;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 令牌解析出的当前用户：用户ID及其加入的家庭组。
+ * 由 AuthTokenFilter 放进请求属性，同一令牌在缓存有效期内共用一个实例，不要修改。
+ */
+public class AuthPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final Long userId;
+    private final List<Family> families;
+
+    public AuthPrincipal(Long userId, List<Family> families) {
+        this.userId = userId;
+        this.families = Collections.unmodifiableList(families);
+    }
+
+    /**
+     * 当前请求携带有效令牌时返回其用户，否则（未带令牌、不在请求线程上）返回 null
+     */
+    public static AuthPrincipal current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (AuthPrincipal) attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public List<Family> getFamilies() {
+        return families;
+    }
+
+    public boolean isMember(Long familyId) {
+        for (Family family : families) {
+            if (family.getId().equals(familyId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
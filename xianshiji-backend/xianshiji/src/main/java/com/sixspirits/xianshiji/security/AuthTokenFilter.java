@@ -0,0 +1,61 @@
+package com.sixspirits.xianshiji.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 解析 Authorization: Bearer 令牌，把当前用户放进请求属性。
+ * 令牌无效或过期返回 401；不带令牌的请求在这里放行，带 userId 的由 UserIdGuard 拒绝。
+ * 提醒事件流另外接受查询参数 access_token 中的短期事件流令牌，EventSource 无法设置请求头。
+ */
+@Component
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String STREAM_TOKEN_PARAM = "access_token";
+    private static final String STREAM_PATH_SUFFIX = "/alerts/stream";
+
+    private final PrincipalCache principalCache;
+
+    public AuthTokenFilter(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        AuthPrincipal principal;
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            principal = principalCache.resolve(header.substring(BEARER_PREFIX.length()).trim());
+        } else if (request.getParameter(STREAM_TOKEN_PARAM) != null
+                && request.getRequestURI().endsWith(STREAM_PATH_SUFFIX)) {
+            principal = principalCache.resolveStreamToken(request.getParameter(STREAM_TOKEN_PARAM));
+        } else {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (principal == null) {
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "登录已失效，请重新登录");
+            return;
+        }
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        chain.doFilter(request, response);
+    }
+
+    static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"success\":false,\"message\":\"" + message + "\"}");
+    }
+}
@@ -0,0 +1,149 @@
+package com.sixspirits.xianshiji.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * 登录令牌的签发与校验：令牌为 "用户ID.过期时间.HMAC-SHA256 签名"，校验只做签名计算，不查库。
+ * 密钥取自 xianshiji.auth.secret，多个节点必须配置相同的密钥。
+ * 要求令牌（xianshiji.auth.require-token）时必须配置，否则启动失败；
+ * 不要求时允许不配置，每次启动随机生成，仅适用于单节点开发环境，重启后旧令牌失效。
+ */
+@Component
+public class AuthTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokens.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Duration TOKEN_TTL = Duration.ofDays(7);
+    // 事件流令牌放在 URL 里（EventSource 不能带请求头），只用于建立连接，有效期很短，
+    // 用户ID前加前缀，与登录令牌互不通用
+    private static final String STREAM_PREFIX = "stream:";
+    private static final Duration STREAM_TOKEN_TTL = Duration.ofSeconds(60);
+
+    private final SecretKeySpec key;
+
+    public AuthTokens(@Value("${xianshiji.auth.secret:}") String secret,
+                      @Value("${xianshiji.auth.require-token:false}") boolean requireToken) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (requireToken) {
+                throw new IllegalStateException(
+                        "xianshiji.auth.require-token 为 true 时必须配置 xianshiji.auth.secret（XIANSHIJI_AUTH_SECRET）");
+            }
+            log.warn("未配置 xianshiji.auth.secret，使用随机密钥，重启后需要重新登录");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public String issue(Long userId) {
+        return issue(String.valueOf(userId), TOKEN_TTL);
+    }
+
+    /**
+     * 签发只能用于建立提醒事件流的短期令牌
+     */
+    public String issueStreamToken(Long userId) {
+        return issue(STREAM_PREFIX + userId, STREAM_TOKEN_TTL);
+    }
+
+    /**
+     * @return 令牌中的用户ID；格式错误、签名不符或已过期时返回 null
+     */
+    public Long verify(String token) {
+        Claims claims = parse(token);
+        return claims != null ? claims.getUserId() : null;
+    }
+
+    /**
+     * 同 verify，同时返回令牌的过期时间，供缓存解析结果时使用
+     */
+    public Claims parse(String token) {
+        return parse(token, "");
+    }
+
+    /**
+     * @return 事件流令牌中的用户ID；登录令牌、格式错误、签名不符或已过期时返回 null
+     */
+    public Long verifyStreamToken(String token) {
+        Claims claims = parse(token, STREAM_PREFIX);
+        return claims != null ? claims.getUserId() : null;
+    }
+
+    private String issue(String subject, Duration ttl) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttl.toSeconds();
+        String payload = subject + "." + expiresAt;
+        return payload + "." + sign(payload);
+    }
+
+    private Claims parse(String token, String prefix) {
+        if (token == null || !token.startsWith(prefix)) {
+            return null;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        int expiresStart = signatureStart > 0 ? token.lastIndexOf('.', signatureStart - 1) : -1;
+        if (expiresStart <= 0) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+        try {
+            long expiresAt = Long.parseLong(token.substring(expiresStart + 1, signatureStart));
+            if (expiresAt < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return new Claims(Long.parseLong(token.substring(prefix.length(), expiresStart)), expiresAt * 1000);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            // Mac 不是线程安全的，每次新建；相比 BCrypt 开销可以忽略
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class Claims {
+        private final Long userId;
+        private final long expiresAtMillis;
+
+        private Claims(Long userId, long expiresAtMillis) {
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.sixspirits.xianshiji.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码的 BCrypt 哈希与校验，放在独立的线程池里执行，不占用 Web 请求线程。
+ * 线程数等于 CPU 核数，排队数有上限，满了直接拒绝（返回失败的 future），
+ * 由接口返回 503，登录高峰时不会拖慢库存等其他接口。
+ */
+@Component
+public class PasswordHasher {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // 每次校验约百毫秒，排队太长的请求等到了也多半已经超时
+    private static final int QUEUE_CAPACITY = THREADS * 8;
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+
+    private final ThreadPoolExecutor hashExecutor = new ThreadPoolExecutor(
+            THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                Thread thread = new Thread(r, "password-hash");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public CompletableFuture<String> hash(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> encoder.encode(rawPassword), hashExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 校验密码；库里还是明文的旧数据直接比较，不进线程池
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!isHashed(storedPassword)) {
+            return CompletableFuture.completedFuture(MessageDigest.isEqual(
+                    rawPassword.getBytes(StandardCharsets.UTF_8), storedPassword.getBytes(StandardCharsets.UTF_8)));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> encoder.matches(rawPassword, storedPassword), hashExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 明文或强度低于当前设置的哈希需要在登录成功后重新哈希
+     */
+    public boolean needsRehash(String storedPassword) {
+        return !isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    private static boolean isHashed(String storedPassword) {
+        return storedPassword.startsWith("$2a$") || storedPassword.startsWith("$2b$")
+                || storedPassword.startsWith("$2y$");
+    }
+}
@@ -0,0 +1,64 @@
+package com.sixspirits.xianshiji.security;
+
+import com.sixspirits.xianshiji.cache.FamilyMemberships;
+import com.sixspirits.xianshiji.cache.TtlCache;
+import org.springframework.stereotype.Component;
+
+/**
+ * 令牌到当前用户的缓存：有效期内同一令牌的请求不再验签、不再查家庭组。
+ * 创建或加入家庭组提交后清掉该用户的所有令牌。
+ */
+@Component
+public class PrincipalCache {
+
+    private static final int MAX_TOKENS = 20_000;
+    // 与 FamilyMemberships 一致
+    private static final long TTL_MILLIS = 60_000L;
+
+    private final AuthTokens authTokens;
+    private final FamilyMemberships familyMemberships;
+    private final TtlCache<String, AuthPrincipal> cache = new TtlCache<>(MAX_TOKENS, TTL_MILLIS);
+
+    public PrincipalCache(AuthTokens authTokens, FamilyMemberships familyMemberships) {
+        this.authTokens = authTokens;
+        this.familyMemberships = familyMemberships;
+    }
+
+    /**
+     * @return 令牌无效或已过期时返回 null
+     */
+    public AuthPrincipal resolve(String token) {
+        AuthPrincipal principal = cache.get(token);
+        if (principal != null) {
+            return principal;
+        }
+        AuthTokens.Claims claims = authTokens.parse(token);
+        if (claims == null) {
+            return null;
+        }
+        principal = new AuthPrincipal(claims.getUserId(), familyMemberships.getFamilies(claims.getUserId()));
+        // 条目不能比令牌活得更久，命中缓存时就不必再检查令牌是否过期
+        long remaining = claims.getExpiresAtMillis() - System.currentTimeMillis();
+        cache.put(token, principal, Math.min(TTL_MILLIS, remaining));
+        return principal;
+    }
+
+    /**
+     * 事件流令牌一个连接只用一次，不缓存
+     * @return 令牌无效或已过期时返回 null
+     */
+    public AuthPrincipal resolveStreamToken(String token) {
+        Long userId = authTokens.verifyStreamToken(token);
+        if (userId == null) {
+            return null;
+        }
+        return new AuthPrincipal(userId, familyMemberships.getFamilies(userId));
+    }
+
+    /**
+     * 在写事务中调用时，提交后再清除一次，避免提交前被并发请求重新缓存旧的家庭组
+     */
+    public void invalidateUser(Long userId) {
+        cache.invalidateIfAfterCompletion(principal -> principal.getUserId().equals(userId));
+    }
+}
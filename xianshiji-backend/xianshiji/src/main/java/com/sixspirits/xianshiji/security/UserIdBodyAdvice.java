@@ -0,0 +1,62 @@
+package com.sixspirits.xianshiji.security;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * 请求体里的 userId 按 UserIdGuard 的规则校验；带令牌而没有填写时补上令牌中的用户，
+ * 新客户端可以不再传 userId。
+ */
+@RestControllerAdvice
+public class UserIdBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private static final String USER_ID = "userId";
+
+    private final UserIdGuard userIdGuard;
+
+    public UserIdBodyAdvice(UserIdGuard userIdGuard) {
+        this.userIdGuard = userIdGuard;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+            Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (body == null) {
+            return body;
+        }
+        AuthPrincipal principal = AuthPrincipal.current();
+        if (body instanceof Map<?, ?> map) {
+            Object userId = map.get(USER_ID);
+            userIdGuard.check(userId);
+            if (userId == null && principal != null) {
+                // Map<String, String> 和 Map<String, Object> 的请求体都按字符串取值，统一放字符串
+                ((Map<String, Object>) map).put(USER_ID, principal.getUserId().toString());
+            }
+            return body;
+        }
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(body);
+        if (wrapper.isReadableProperty(USER_ID) && wrapper.isWritableProperty(USER_ID)) {
+            Object userId = wrapper.getPropertyValue(USER_ID);
+            userIdGuard.check(userId);
+            if (userId == null && principal != null) {
+                wrapper.setPropertyValue(USER_ID, principal.getUserId());
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,84 @@
+package com.sixspirits.xianshiji.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * 路径或查询参数里带 userId 的请求：带令牌时 userId 必须是令牌中的用户，否则返回 403；
+ * 不带令牌时，xianshiji.auth.require-token 为 true 返回 401，为 false（默认，兼容旧版 App）放行。
+ * 请求体里的 userId 由 UserIdBodyAdvice 调用 check 处理。
+ */
+@Component
+public class UserIdGuard implements HandlerInterceptor {
+
+    private static final String USER_ID = "userId";
+
+    private final boolean requireToken;
+
+    public UserIdGuard(@Value("${xianshiji.auth.require-token:false}") boolean requireToken) {
+        this.requireToken = requireToken;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        AuthPrincipal principal = (AuthPrincipal) request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String pathUserId = pathVariables != null ? pathVariables.get(USER_ID) : null;
+        String[] paramUserIds = request.getParameterValues(USER_ID);
+        if (principal == null) {
+            if (requireToken && (pathUserId != null || paramUserIds != null)) {
+                AuthTokenFilter.writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "请先登录");
+                return false;
+            }
+            return true;
+        }
+        if (!matches(principal, pathUserId)) {
+            AuthTokenFilter.writeError(response, HttpServletResponse.SC_FORBIDDEN, "无权访问其他用户的数据");
+            return false;
+        }
+        if (paramUserIds != null) {
+            for (String paramUserId : paramUserIds) {
+                if (!matches(principal, paramUserId)) {
+                    AuthTokenFilter.writeError(response, HttpServletResponse.SC_FORBIDDEN, "无权访问其他用户的数据");
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 校验请求体等位置取到的用户ID，规则与路径和查询参数相同
+     * @throws ResponseStatusException 不带令牌时为 401，不是令牌中的用户时为 403
+     */
+    public void check(Object userId) {
+        if (userId == null) {
+            return;
+        }
+        AuthPrincipal principal = AuthPrincipal.current();
+        if (principal == null) {
+            if (requireToken) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "请先登录");
+            }
+            return;
+        }
+        if (!matches(principal, userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "无权访问其他用户的数据");
+        }
+    }
+
+    static boolean matches(AuthPrincipal principal, Object userId) {
+        return userId == null || principal.getUserId().toString().equals(userId.toString().trim());
+    }
+}
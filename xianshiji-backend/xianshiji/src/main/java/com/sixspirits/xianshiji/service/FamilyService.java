@@ -1,23 +1,40 @@
 package com.sixspirits.xianshiji.service;
 
+import com.sixspirits.xianshiji.cache.FamilyMemberships;
+import com.sixspirits.xianshiji.cache.UserProfiles;
 import com.sixspirits.xianshiji.entity.Family;
+import com.sixspirits.xianshiji.entity.FamilyMember;
 import com.sixspirits.xianshiji.entity.UserFamily;
+import com.sixspirits.xianshiji.entity.UserProfile;
 import com.sixspirits.xianshiji.mapper.FamilyMapper;
+import com.sixspirits.xianshiji.security.AuthPrincipal;
+import com.sixspirits.xianshiji.security.PrincipalCache;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class FamilyService {
 
     private final FamilyMapper familyMapper;
+    private final FamilyMemberships familyMemberships;
+    private final UserProfiles userProfiles;
+    private final PrincipalCache principalCache;
 
-    public FamilyService(FamilyMapper familyMapper) {
+    public FamilyService(FamilyMapper familyMapper, FamilyMemberships familyMemberships, UserProfiles userProfiles,
+            PrincipalCache principalCache) {
         this.familyMapper = familyMapper;
+        this.familyMemberships = familyMemberships;
+        this.userProfiles = userProfiles;
+        this.principalCache = principalCache;
     }
 
+    @Transactional
     public Family createFamily(String familyName, Long creatorId) {
         Family family = new Family();
         family.setName(familyName);
@@ -35,10 +52,14 @@ public class FamilyService {
         userFamily.setJoinedAt(LocalDateTime.now());
 
         familyMapper.insertUserFamily(userFamily);
+        familyMemberships.invalidate(creatorId);
+        familyMemberships.invalidateMembers(family.getId());
+        principalCache.invalidateUser(creatorId);
 
         return family;
     }
 
+    @Transactional
     public boolean joinFamily(String inviteCode, Long userId) {
         Family family = familyMapper.findByInviteCode(inviteCode);
         if (family == null) {
@@ -59,11 +80,69 @@ public class FamilyService {
         userFamily.setJoinedAt(LocalDateTime.now());
 
         familyMapper.insertUserFamily(userFamily);
+        familyMemberships.invalidate(userId);
+        familyMemberships.invalidateMembers(family.getId());
+        principalCache.invalidateUser(userId);
         return true;
     }
 
     public List<Family> getUserFamilies(Long userId) {
-        return familyMapper.findUserFamilies(userId);
+        AuthPrincipal principal = currentPrincipal(userId);
+        if (principal != null) {
+            return new ArrayList<>(principal.getFamilies());
+        }
+        return familyMemberships.getFamilies(userId);
+    }
+
+    public boolean isMember(Long userId, Long familyId) {
+        AuthPrincipal principal = currentPrincipal(userId);
+        if (principal != null) {
+            return familyId != null && principal.isMember(familyId);
+        }
+        return familyMemberships.isMember(userId, familyId);
+    }
+
+    /**
+     * 请求带令牌且查的正是令牌中的用户时，直接用令牌解析时缓存的家庭组
+     */
+    private static AuthPrincipal currentPrincipal(Long userId) {
+        AuthPrincipal principal = AuthPrincipal.current();
+        return principal != null && principal.getUserId().equals(userId) ? principal : null;
+    }
+
+    /**
+     * 家庭组成员及其昵称、头像：成员关系一条查询，资料走缓存，未命中的合并成一条 IN 查询
+     * @param userId 请求者，需是该家庭组的成员
+     */
+    public List<FamilyMember> getFamilyMembers(Long userId, Long familyId) {
+        checkMember(userId, familyId);
+        List<UserFamily> relations = familyMapper.findFamilyMembers(familyId);
+        Map<Long, UserProfile> profiles = userProfiles.getProfiles(
+                relations.stream().map(UserFamily::getUserId).toList());
+
+        List<FamilyMember> members = new ArrayList<>(relations.size());
+        for (UserFamily relation : relations) {
+            FamilyMember member = new FamilyMember();
+            member.setUserId(relation.getUserId());
+            member.setRole(relation.getRole());
+            member.setJoinedAt(relation.getJoinedAt());
+            UserProfile profile = profiles.get(relation.getUserId());
+            if (profile != null) {
+                member.setNickname(profile.getNickname());
+                member.setAvatarUrl(profile.getAvatarUrl());
+            }
+            members.add(member);
+        }
+        return members;
+    }
+
+    /**
+     * 家庭库存读写前的权限校验
+     */
+    public void checkMember(Long userId, Long familyId) {
+        if (!isMember(userId, familyId)) {
+            throw new RuntimeException("不是该家庭组的成员");
+        }
     }
 
     private String generateInviteCode() {
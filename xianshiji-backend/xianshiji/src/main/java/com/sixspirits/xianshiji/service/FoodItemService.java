@@ -1,107 +1,286 @@
 package com.sixspirits.xianshiji.service;
 
+import com.sixspirits.xianshiji.cache.InventoryVersions;
+import com.sixspirits.xianshiji.common.CursorPage;
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.common.SyncToken;
+import com.sixspirits.xianshiji.common.VersionConflictException;
+import com.sixspirits.xianshiji.entity.Family;
+import com.sixspirits.xianshiji.entity.FoodAlert;
+import com.sixspirits.xianshiji.entity.FoodAlerts;
 import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.entity.FoodItemChanges;
+import com.sixspirits.xianshiji.event.FoodStatusChangedEvent;
 import com.sixspirits.xianshiji.mapper.FoodItemMapper;
+import com.sixspirits.xianshiji.mapper.FoodStatsMapper;
+import com.sixspirits.xianshiji.mapper.InventoryVersionMapper;
+import com.sixspirits.xianshiji.search.FoodSearchIndex;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Service
 public class FoodItemService {
 
+    /**
+     * 距离过期不超过该天数即为临期
+     */
+    public static final int NEAR_EXPIRY_DAYS = 3;
+
+    /**
+     * 批量接口一次最多处理的食材数
+     */
+    public static final int MAX_BATCH_SIZE = 200;
+
+    // 补齐状态切换日期时每条 UPDATE 的行数
+    private static final int BACKFILL_BATCH = 5_000;
+
+    /**
+     * PATCH 接口允许修改的字段
+     */
+    public static final Set<String> PATCHABLE_FIELDS = Set.of(
+            "name", "category", "quantity", "unit", "minQuantity", "purchaseDate", "expiryDate", "imageUrl");
+
+    // 会改变状态或统计分组的字段，修改它们时需要读取修改前的值
+    private static final Set<String> STATUS_FIELDS = Set.of("category", "quantity", "minQuantity", "expiryDate");
+
+    // 同步令牌比数据库当前时间提前的秒数：语句时间早于提交时间，
+    // 未提交事务写入的 updated_at 可能早于令牌，留出窗口让它们在下次同步时仍能取到
+    private static final int SYNC_WINDOW_SECONDS = 60;
+    // 变更超过该条数时直接返回全量列表
+    private static final int MAX_SYNC_CHANGES = 500;
+
     private final FoodItemMapper foodItemMapper;
+    private final FoodStatsMapper foodStatsMapper;
+    private final FoodSearchIndex foodSearchIndex;
+    private final InventoryVersions inventoryVersions;
+    private final FamilyService familyService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JsonMapper jsonMapper;
+    // BATCH 执行器：同一语句连续执行时合并成一次 JDBC 批量提交。
+    // 同一事务内不能混用执行器，批量修改的方法只通过它访问数据库
+    private final SqlSessionTemplate batchSqlSession;
 
-    public FoodItemService(FoodItemMapper foodItemMapper) {
+    public FoodItemService(FoodItemMapper foodItemMapper, FoodStatsMapper foodStatsMapper,
+                           FoodSearchIndex foodSearchIndex, InventoryVersions inventoryVersions,
+                           FamilyService familyService, ApplicationEventPublisher eventPublisher,
+                           JsonMapper jsonMapper, SqlSessionFactory sqlSessionFactory) {
         this.foodItemMapper = foodItemMapper;
+        this.foodStatsMapper = foodStatsMapper;
+        this.foodSearchIndex = foodSearchIndex;
+        this.inventoryVersions = inventoryVersions;
+        this.familyService = familyService;
+        this.eventPublisher = eventPublisher;
+        this.jsonMapper = jsonMapper;
+        this.batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    }
+
+    /**
+     * 用户库存的 ETag，库存未变化时 GET 接口据此直接返回 304
+     */
+    public String getUserInventoryEtag(Long userId) {
+        return inventoryVersions.etag(InventoryVersions.USER, userId);
     }
 
     public List<FoodItem> getUserFoodItems(Long userId) {
         List<FoodItem> items = foodItemMapper.findByUserId(userId);
-        // 更新状态
+        // 读取时在内存中计算状态，不回写数据库
+        for (FoodItem item : items) {
+            refreshStatus(item);
+        }
+        return items;
+    }
+
+    /**
+     * 按创建时间倒序分页获取用户食材
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     */
+    public CursorPage<FoodItem> getUserFoodItemsPage(Long userId, String cursor, int limit) {
+        int size = PageCursor.normalizeLimit(limit);
+        // 多取一行用于判断是否还有下一页
+        List<FoodItem> rows = foodItemMapper.findPageByUserId(userId, PageCursor.decode(cursor), size + 1);
+        for (FoodItem item : rows) {
+            refreshStatus(item);
+        }
+        return CursorPage.of(rows, size, FoodItem::getCreatedAt, FoodItem::getId);
+    }
+
+    public List<FoodItem> getFamilyFoodItems(Long familyId) {
+        List<FoodItem> items = foodItemMapper.findByFamilyId(familyId);
         for (FoodItem item : items) {
-            updateStatus(item);
+            refreshStatus(item);
         }
         return items;
     }
 
+    /**
+     * 家庭库存的 ETag，先校验成员身份
+     */
+    public String getFamilyInventoryEtag(Long userId, Long familyId) {
+        familyService.checkMember(userId, familyId);
+        return inventoryVersions.etag(InventoryVersions.FAMILY, familyId);
+    }
+
+    /**
+     * 家庭组共享的库存，所有成员的食材由一条查询取出
+     */
+    public List<FoodItem> getFamilyFoodItems(Long userId, Long familyId) {
+        familyService.checkMember(userId, familyId);
+        return getFamilyFoodItems(familyId);
+    }
+
+    public CursorPage<FoodItem> getFamilyFoodItemsPage(Long userId, Long familyId, String cursor, int limit) {
+        familyService.checkMember(userId, familyId);
+        int size = PageCursor.normalizeLimit(limit);
+        List<FoodItem> rows = foodItemMapper.findPageByFamilyId(familyId, PageCursor.decode(cursor), size + 1);
+        for (FoodItem item : rows) {
+            refreshStatus(item);
+        }
+        return CursorPage.of(rows, size, FoodItem::getCreatedAt, FoodItem::getId);
+    }
+
     public List<FoodItem> getUserFoodItemsByStatus(Long userId, String status) {
-        List<FoodItem> items;
+        return getUserFoodItemsByStatus(userId, status, null, null, null);
+    }
+
+    public List<FoodItem> getUserFoodItemsByStatus(Long userId, String status, String category,
+                                                   LocalDate expiryFrom, LocalDate expiryTo) {
         switch (status) {
+            case "NORMAL":
             case "NEAR_EXPIRY":
-                items = foodItemMapper.findByUserId(userId).stream()
-                        .filter(item -> "NEAR_EXPIRY".equals(item.getStatus()))
-                        .collect(java.util.stream.Collectors.toList());
-                break;
             case "INSUFFICIENT":
-                items = foodItemMapper.findByUserId(userId).stream()
-                        .filter(item -> "INSUFFICIENT".equals(item.getStatus()))
-                        .collect(java.util.stream.Collectors.toList());
-                break;
             case "EXPIRED":
-                items = foodItemMapper.findByUserId(userId).stream()
-                        .filter(item -> "EXPIRED".equals(item.getStatus()))
-                        .collect(java.util.stream.Collectors.toList());
                 break;
             default:
-                items = foodItemMapper.findByUserId(userId);
+                // 未知状态按全部处理
+                status = null;
                 break;
         }
+        if (status == null && category == null && expiryFrom == null && expiryTo == null) {
+            return getUserFoodItems(userId);
+        }
 
-        // 更新状态
+        // 状态按当天的日期规则在 SQL 中过滤，与下面重新计算的结果一致
+        LocalDate today = LocalDate.now();
+        List<FoodItem> items = foodItemMapper.findByCondition(userId, status, category, expiryFrom, expiryTo,
+                today, today.plusDays(NEAR_EXPIRY_DAYS));
         for (FoodItem item : items) {
-            updateStatus(item);
+            refreshStatus(item);
         }
         return items;
     }
 
     public java.util.Map<String, Integer> getFoodStatistics(Long userId) {
-        List<FoodItem> allItems = getUserFoodItems(userId);
-        java.util.Map<String, Integer> stats = new java.util.HashMap<>();
-
-        int totalCategories = (int) allItems.stream()
-                .map(FoodItem::getCategory)
-                .distinct()
-                .count();
+        // 读取 food_stats 中按分类维护的计数，只涉及该用户的几行
+        return toStatistics(foodStatsMapper.sumByScope("USER", userId));
+    }
 
-        int nearExpiry = (int) allItems.stream()
-                .filter(item -> "NEAR_EXPIRY".equals(item.getStatus()))
-                .count();
+    /**
+     * 用户的临期、过期和数量不足提醒，一条走索引的查询，只读取需要提醒的行
+     */
+    public FoodAlerts getUserFoodAlerts(Long userId) {
+        return groupAlerts(foodItemMapper.findAlertsByUserId(userId, LocalDate.now().plusDays(NEAR_EXPIRY_DAYS)));
+    }
 
-        int insufficient = (int) allItems.stream()
-                .filter(item -> "INSUFFICIENT".equals(item.getStatus()))
-                .count();
+    public FoodAlerts getFamilyFoodAlerts(Long userId, Long familyId) {
+        familyService.checkMember(userId, familyId);
+        return groupAlerts(foodItemMapper.findAlertsByFamilyId(familyId, LocalDate.now().plusDays(NEAR_EXPIRY_DAYS)));
+    }
 
-        int expired = (int) allItems.stream()
-                .filter(item -> "EXPIRED".equals(item.getStatus()))
-                .count();
+    /**
+     * 家庭库存的统计，读取 food_stats 中该家庭组的计数
+     */
+    public java.util.Map<String, Integer> getFamilyFoodStatistics(Long userId, Long familyId) {
+        familyService.checkMember(userId, familyId);
+        return toStatistics(foodStatsMapper.sumByScope("FAMILY", familyId));
+    }
 
-        int totalItems = allItems.size();
+    /**
+     * 从 food_item 重新聚合用户的统计计数，用于初始化或校正
+     */
+    @Transactional
+    public java.util.Map<String, Integer> rebuildFoodStatistics(Long userId) {
+        foodStatsMapper.deleteByScope("USER", userId);
+        foodStatsMapper.rebuildScope("USER", userId);
+        inventoryVersions.bump(InventoryVersions.USER, userId);
+        return getFoodStatistics(userId);
+    }
 
-        stats.put("totalCategories", totalCategories);
-        stats.put("nearExpiry", nearExpiry);
-        stats.put("insufficient", insufficient);
-        stats.put("expired", expired);
-        stats.put("totalItems", totalItems);
+    /**
+     * 增量同步：返回令牌之后新增、修改和删除的食材
+     * @param syncToken 上次同步返回的令牌，为空时返回全量列表
+     */
+    public FoodItemChanges getUserFoodItemChanges(Long userId, String syncToken) {
+        LocalDateTime since = SyncToken.decode(syncToken);
+        // 先取时间再查数据，查询期间提交的变更不会落在令牌之前
+        LocalDateTime next = foodItemMapper.selectNow().minusSeconds(SYNC_WINDOW_SECONDS);
+        if (since != null && since.isAfter(next)) {
+            // 数据库时钟回拨时令牌不后退
+            next = since;
+        }
 
-        return stats;
+        FoodItemChanges changes = new FoodItemChanges();
+        changes.setSyncToken(SyncToken.encode(next));
+        List<FoodItem> changed = since != null
+                ? foodItemMapper.findChangedSince(userId, since, MAX_SYNC_CHANGES + 1)
+                : null;
+        if (changed == null || changed.size() > MAX_SYNC_CHANGES) {
+            changes.setFull(true);
+            changes.setItems(getUserFoodItems(userId));
+            return changes;
+        }
+        for (FoodItem item : changed) {
+            if (item.getIsDeleted() != null && item.getIsDeleted() == 1) {
+                changes.getDeletedIds().add(item.getId());
+            } else {
+                refreshStatus(item);
+                changes.getItems().add(item);
+            }
+        }
+        return changes;
     }
 
     public List<FoodItem> getUserFoodItemsByCategory(Long userId, String category) {
         List<FoodItem> items = foodItemMapper.findByUserIdAndCategory(userId, category);
         for (FoodItem item : items) {
-            updateStatus(item);
+            refreshStatus(item);
         }
         return items;
     }
 
     public List<FoodItem> searchUserFoodItems(Long userId, String keyword) {
-        List<FoodItem> items = foodItemMapper.findByUserIdAndKeyword(userId, keyword);
+        return searchUserFoodItems(userId, keyword, 0);
+    }
+
+    /**
+     * 在内存索引中搜索用户食材，支持汉字、全拼和首字母
+     * @param limit 最多返回条数，小于等于 0 表示不限
+     */
+    public List<FoodItem> searchUserFoodItems(Long userId, String keyword, int limit) {
+        List<FoodItem> items = foodSearchIndex.search(userId, keyword, limit, foodItemMapper::findByUserId);
         for (FoodItem item : items) {
-            updateStatus(item);
+            refreshStatus(item);
         }
         return items;
     }
@@ -109,86 +288,252 @@ public class FoodItemService {
     public FoodItem getFoodItemById(Long id) {
         FoodItem item = foodItemMapper.findById(id);
         if (item != null) {
-            updateStatus(item);
+            refreshStatus(item);
         }
         return item;
     }
 
+    @Transactional
     public FoodItem addFoodItem(FoodItem foodItem) {
+        if (foodItem.getFamilyId() != null) {
+            familyService.checkMember(foodItem.getUserId(), foodItem.getFamilyId());
+        }
+        applyTransitionDates(foodItem);
         foodItem.setStatus(calculateStatus(foodItem));
         foodItem.setIsDeleted(0);
+        foodItem.setVersion(0);
         foodItem.setCreatedAt(LocalDateTime.now());
         foodItem.setUpdatedAt(LocalDateTime.now());
 
         foodItemMapper.insert(foodItem);
+        new FoodStatsDelta().add(foodItem).flush(foodStatsMapper);
+        bumpVersions(foodItem);
+        publishStatusChange(foodItem, null);
+        foodSearchIndex.upsert(foodItem);
         return foodItem;
     }
 
+    /**
+     * 权限校验在 UPDATE 的条件里，按影响行数判断；先读出的行只用于计算统计增量
+     */
+    @Transactional
     public boolean updateQuantity(Long id, BigDecimal newQuantity, Long userId) {
         FoodItem item = foodItemMapper.findById(id);
-        if (item == null || !item.getUserId().equals(userId)) {
+        if (item == null) {
             return false;
         }
+        FoodStatsDelta delta = new FoodStatsDelta().remove(copyOf(item));
+        String oldStatus = item.getStatus();
 
         item.setQuantity(newQuantity);
+        applyTransitionDates(item);
         item.setUpdatedAt(LocalDateTime.now());
         item.setStatus(calculateStatus(item)); // 更新状态
 
         // 如果数量为0，软删除
         if (newQuantity.compareTo(BigDecimal.ZERO) <= 0) {
-            foodItemMapper.softDeleteById(id);
+            if (foodItemMapper.softDeleteOwned(id, userId) == 0) {
+                return false;
+            }
+            foodSearchIndex.remove(userId, id);
         } else {
-            foodItemMapper.updateById(item);
+            if (foodItemMapper.updateById(item, userId) == 0) {
+                return false;
+            }
+            delta.add(item);
+            publishStatusChange(item, oldStatus);
+            foodSearchIndex.upsert(item);
         }
+        delta.flush(foodStatsMapper);
+        bumpVersions(item);
 
         return true;
     }
 
+    /**
+     * 消耗一定数量，用完时软删除
+     * @return 修改后的食材
+     */
+    @Transactional
+    public FoodItem consume(Long id, BigDecimal amount, Long userId) {
+        checkPositive(amount);
+        return adjustQuantity(id, amount.negate(), userId);
+    }
+
+    /**
+     * 补充一定数量
+     * @return 修改后的食材
+     */
+    @Transactional
+    public FoodItem restock(Long id, BigDecimal amount, Long userId) {
+        checkPositive(amount);
+        return adjustQuantity(id, amount, userId);
+    }
+
+    /**
+     * 数量按增量修改，由一条带条件的 UPDATE 完成，并发消耗不会互相覆盖；
+     * 食材的所有者和所在家庭组的成员都可以修改
+     */
+    private FoodItem adjustQuantity(Long id, BigDecimal delta, Long userId) {
+        List<Long> familyIds = familyService.getUserFamilies(userId).stream().map(Family::getId).toList();
+        // 先锁定该行取修改前的状态：统计计数按库里存的状态记账，不能由数量重新推算
+        FoodItem before = foodItemMapper.findByIdForUpdate(id);
+        if (before == null || Integer.valueOf(1).equals(before.getIsDeleted())
+                || (!before.getUserId().equals(userId) && !familyIds.contains(before.getFamilyId()))) {
+            throw new RuntimeException("食材不存在或无权限");
+        }
+        LocalDate today = LocalDate.now();
+        if (foodItemMapper.applyQuantityDelta(id, userId, familyIds, delta, today,
+                today.plusDays(NEAR_EXPIRY_DAYS)) == 0) {
+            throw new RuntimeException("库存不足，当前剩余" + before.getQuantity().stripTrailingZeros().toPlainString());
+        }
+        // 本事务已锁定该行，读到的就是刚写入的结果
+        FoodItem item = foodItemMapper.findByIdIncludingDeleted(id);
+
+        FoodStatsDelta stats = new FoodStatsDelta().remove(before);
+        if (Integer.valueOf(1).equals(item.getIsDeleted())) {
+            foodSearchIndex.remove(item.getUserId(), id);
+        } else {
+            stats.add(item);
+            publishStatusChange(item, before.getStatus());
+            foodSearchIndex.upsert(item);
+        }
+        stats.flush(foodStatsMapper);
+        bumpVersions(item);
+        return item;
+    }
+
+    @Transactional
     public boolean updateMinQuantity(Long id, BigDecimal minQuantity, Long userId) {
-        System.out.println("Service层：查找食材，id=" + id);
-        
         FoodItem item = foodItemMapper.findById(id);
-        
         if (item == null) {
-            System.out.println("Service层：未找到食材，id=" + id);
             return false;
         }
-        
-        System.out.println("Service层：找到食材，id=" + id + ", userId=" + item.getUserId());
-        
-        if (!item.getUserId().equals(userId)) {
-            System.out.println("Service层：权限验证失败，食材userId=" + item.getUserId() + ", 请求userId=" + userId);
+
+        // 只写 min_quantity 和状态，不再整行覆盖
+        FoodItem changes = new FoodItem();
+        changes.setMinQuantity(minQuantity);
+        if (applyPatch(item, userId, changes, Set.of("minQuantity"), item.getVersion()) != null) {
+            return true;
+        }
+        if (!userId.equals(item.getUserId())) {
             return false;
         }
+        throw new VersionConflictException("食材已被修改，请刷新后重试");
+    }
 
-        item.setMinQuantity(minQuantity);
+    /**
+     * 部分修改：只写入 changes 中出现的字段，带上 version 时做乐观锁校验
+     * @param changes 字段名到新值，version 为客户端读到的版本号（可省略）
+     * @return 修改后的食材
+     * @throws VersionConflictException 食材已被其他请求修改
+     */
+    @Transactional
+    public FoodItem patchFoodItem(Long id, Long userId, Map<String, Object> changes) {
+        FoodItem patch = jsonMapper.convertValue(changes, FoodItem.class);
+        patch.setId(id);
+        Set<String> fields = new LinkedHashSet<>();
+        for (String field : changes.keySet()) {
+            if (PATCHABLE_FIELDS.contains(field)) {
+                fields.add(field);
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new RuntimeException("没有可修改的字段");
+        }
+        if (fields.contains("name") && (patch.getName() == null || patch.getName().isBlank())) {
+            throw new RuntimeException("食材名称不能为空");
+        }
+        if (fields.contains("quantity") && (patch.getQuantity() == null
+                || patch.getQuantity().compareTo(BigDecimal.ZERO) <= 0)) {
+            throw new RuntimeException("数量必须大于0");
+        }
+        if (fields.contains("expiryDate") && patch.getExpiryDate() == null) {
+            throw new RuntimeException("过期日期不能为空");
+        }
+
+        if (Collections.disjoint(fields, STATUS_FIELDS)) {
+            // 状态和分类不变，统计计数和提醒都不受影响：直接按版本号更新，没有更新到时才读取该行区分原因
+            if (foodItemMapper.patchById(patch, userId, fields, patch.getVersion()) == 0) {
+                throw patchRejected(foodItemMapper.findById(id), userId);
+            }
+            FoodItem item = foodItemMapper.findById(id);
+            bumpVersions(item);
+            foodSearchIndex.upsert(item);
+            return item;
+        }
+
+        // 统计增量和提醒要用修改前的分类和状态，先锁定该行，读到的旧值在提交前不会再变
+        FoodItem item = foodItemMapper.findByIdForUpdate(id);
+        if (item == null || Integer.valueOf(1).equals(item.getIsDeleted())) {
+            throw new RuntimeException("食材不存在或无权限");
+        }
+        Integer expectedVersion = patch.getVersion() != null ? patch.getVersion() : item.getVersion();
+        FoodItem updated = applyPatch(item, userId, patch, fields, expectedVersion);
+        if (updated == null) {
+            throw patchRejected(item, userId);
+        }
+        return updated;
+    }
+
+    /**
+     * 部分修改没有更新到任何行时的原因：食材不存在、不属于该用户，或版本号不一致
+     */
+    private RuntimeException patchRejected(FoodItem current, Long userId) {
+        if (current == null || !userId.equals(current.getUserId())) {
+            return new RuntimeException("食材不存在或无权限");
+        }
+        return new VersionConflictException("食材已被修改，请刷新后重试");
+    }
+
+    /**
+     * 把 patch 中 fields 列出的字段写到 item 上，状态一并重新计算，按 expectedVersion 做乐观锁更新
+     * @param item 本事务读到的行，统计增量按它的旧值计算
+     * @return 修改后的食材；食材不属于 userId 或版本号不一致时不更新，返回 null
+     */
+    private FoodItem applyPatch(FoodItem item, Long userId, FoodItem patch, Set<String> fields,
+                                Integer expectedVersion) {
+        FoodStatsDelta delta = new FoodStatsDelta().remove(copyOf(item));
+        String oldStatus = item.getStatus();
+        for (String field : fields) {
+            switch (field) {
+                case "name" -> item.setName(patch.getName());
+                case "category" -> item.setCategory(patch.getCategory());
+                case "quantity" -> item.setQuantity(patch.getQuantity());
+                case "unit" -> item.setUnit(patch.getUnit());
+                case "minQuantity" -> item.setMinQuantity(patch.getMinQuantity());
+                case "purchaseDate" -> item.setPurchaseDate(patch.getPurchaseDate());
+                case "expiryDate" -> item.setExpiryDate(patch.getExpiryDate());
+                case "imageUrl" -> item.setImageUrl(patch.getImageUrl());
+                default -> throw new IllegalArgumentException("不支持修改的字段：" + field);
+            }
+        }
+        applyTransitionDates(item);
+        item.setStatus(calculateStatus(item));
         item.setUpdatedAt(LocalDateTime.now());
-        item.setStatus(calculateStatus(item)); // 更新状态
 
-        System.out.println("Service层：更新前的食材信息：" + item);
-        
-        int rowsUpdated = foodItemMapper.updateById(item);
-        System.out.println("Service层：影响的行数：" + rowsUpdated);
-        
-        return rowsUpdated > 0;
+        Set<String> columns = new LinkedHashSet<>(fields);
+        columns.add("status");
+        if (foodItemMapper.patchById(item, userId, columns, expectedVersion) == 0) {
+            return null;
+        }
+        item.setVersion(expectedVersion + 1);
+
+        delta.add(item).flush(foodStatsMapper);
+        bumpVersions(item);
+        publishStatusChange(item, oldStatus);
+        foodSearchIndex.upsert(item);
+        return item;
     }
 
+    @Transactional
     public boolean updateFoodItem(Long id, FoodItem foodItem, Long userId) {
-        System.out.println("Service层：查找食材，id=" + id);
-        
         FoodItem item = foodItemMapper.findById(id);
-        
         if (item == null) {
-            System.out.println("Service层：未找到食材，id=" + id);
-            return false;
-        }
-        
-        System.out.println("Service层：找到食材，id=" + id + ", userId=" + item.getUserId());
-        
-        if (!item.getUserId().equals(userId)) {
-            System.out.println("Service层：权限验证失败，食材userId=" + item.getUserId() + ", 请求userId=" + userId);
             return false;
         }
+        FoodStatsDelta delta = new FoodStatsDelta().remove(copyOf(item));
+        String oldStatus = item.getStatus();
 
         // 更新食材信息
         item.setName(foodItem.getName());
@@ -199,30 +544,476 @@ public class FoodItemService {
         item.setPurchaseDate(foodItem.getPurchaseDate());
         item.setExpiryDate(foodItem.getExpiryDate());
         item.setImageUrl(foodItem.getImageUrl());
+        applyTransitionDates(item);
         item.setUpdatedAt(LocalDateTime.now());
         item.setStatus(calculateStatus(item)); // 更新状态
 
-        System.out.println("Service层：更新前的食材信息：" + item);
-        
-        int rowsUpdated = foodItemMapper.updateById(item);
-        System.out.println("Service层：影响的行数：" + rowsUpdated);
+        // 不属于该用户时影响行数为 0
+        int rowsUpdated = foodItemMapper.updateById(item, userId);
+        if (rowsUpdated > 0) {
+            delta.add(item).flush(foodStatsMapper);
+            bumpVersions(item);
+            publishStatusChange(item, oldStatus);
+            foodSearchIndex.upsert(item);
+        }
         
         return rowsUpdated > 0;
     }
 
+    @Transactional
     public boolean deleteFoodItem(Long id, Long userId) {
-        FoodItem item = foodItemMapper.findById(id);
-        if (item == null || !item.getUserId().equals(userId)) {
+        // 权限校验放进 UPDATE 的条件里，不存在或无权限时不用再读
+        if (foodItemMapper.softDeleteOwned(id, userId) == 0) {
             return false;
         }
-
-        foodItemMapper.softDeleteById(id);
+        FoodItem item = foodItemMapper.findByIdIncludingDeleted(id);
+        new FoodStatsDelta().remove(item).flush(foodStatsMapper);
+        bumpVersions(item);
+        foodSearchIndex.remove(userId, id);
         return true;
     }
 
-    private void updateStatus(FoodItem item) {
+    /**
+     * 批量添加食材，有效的食材用一条多行 INSERT 写入
+     * @return 每个食材的处理结果（index / id / success / message），顺序与传入一致
+     */
+    @Transactional
+    public List<Map<String, Object>> addFoodItems(Long userId, List<FoodItem> foodItems) {
+        checkBatchSize(foodItems);
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<FoodItem> valid = new ArrayList<>();
+        List<Map<String, Object>> validResults = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < foodItems.size(); i++) {
+            FoodItem foodItem = foodItems.get(i);
+            Map<String, Object> result = batchResult(i, null);
+            results.add(result);
+            String error = validateNewItem(foodItem);
+            if (error == null && foodItem.getFamilyId() != null
+                    && !familyService.isMember(userId, foodItem.getFamilyId())) {
+                error = "不是该家庭组的成员";
+            }
+            if (error != null) {
+                result.put("success", false);
+                result.put("message", error);
+                continue;
+            }
+            foodItem.setUserId(userId);
+            applyTransitionDates(foodItem);
+            foodItem.setStatus(calculateStatus(foodItem));
+            foodItem.setIsDeleted(0);
+            foodItem.setVersion(0);
+            foodItem.setCreatedAt(now);
+            foodItem.setUpdatedAt(now);
+            valid.add(foodItem);
+            validResults.add(result);
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+
+        foodItemMapper.insertBatch(valid);
+        FoodStatsDelta delta = new FoodStatsDelta();
+        for (int i = 0; i < valid.size(); i++) {
+            FoodItem item = valid.get(i);
+            delta.add(item);
+            publishStatusChange(item, null);
+            foodSearchIndex.upsert(item);
+            validResults.get(i).put("id", item.getId());
+            validResults.get(i).put("success", true);
+        }
+        delta.flush(foodStatsMapper);
+        bumpVersions(inventoryVersions::bump, valid);
+        return results;
+    }
+
+    /**
+     * 批量修改数量，数量小于等于 0 的软删除；更新语句经 BATCH 执行器合并提交
+     * @param changes 每项需包含 id 和 quantity
+     * @return 每个食材的处理结果，顺序与传入一致
+     */
+    @Transactional
+    public List<Map<String, Object>> updateQuantities(Long userId, List<FoodItem> changes) {
+        checkBatchSize(changes);
+        FoodItemMapper batchItemMapper = batchSqlSession.getMapper(FoodItemMapper.class);
+        FoodStatsMapper batchStatsMapper = batchSqlSession.getMapper(FoodStatsMapper.class);
+
+        Map<Long, FoodItem> current = lockUserItems(batchItemMapper, userId, changes.stream()
+                .map(FoodItem::getId).toList());
+        List<FoodItem> lockedItems = new ArrayList<>(current.values());
+        // 修改前的状态，提交后据此推送状态变化
+        Map<Long, String> oldStatuses = new HashMap<>();
+        for (FoodItem item : lockedItems) {
+            oldStatuses.put(item.getId(), item.getStatus());
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<Long, FoodItem> updated = new LinkedHashMap<>();
+        List<Long> deleted = new ArrayList<>();
+        FoodStatsDelta delta = new FoodStatsDelta();
+        for (int i = 0; i < changes.size(); i++) {
+            FoodItem change = changes.get(i);
+            Map<String, Object> result = batchResult(i, change.getId());
+            results.add(result);
+            FoodItem item = change.getId() != null ? current.get(change.getId()) : null;
+            if (item == null) {
+                result.put("success", false);
+                result.put("message", "食材不存在或无权限");
+                continue;
+            }
+            if (change.getQuantity() == null) {
+                result.put("success", false);
+                result.put("message", "数量不能为空");
+                continue;
+            }
+            delta.remove(copyOf(item));
+            item.setQuantity(change.getQuantity());
+            item.setUpdatedAt(LocalDateTime.now());
+            item.setStatus(calculateStatus(item));
+            if (change.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
+                // 已删除的不再接受同一请求里后续的修改
+                current.remove(item.getId());
+                updated.remove(item.getId());
+                deleted.add(item.getId());
+            } else {
+                delta.add(item);
+                updated.put(item.getId(), item);
+            }
+            result.put("success", true);
+        }
+
+        // 同一语句放在一起排队，BATCH 执行器才能合并成一次提交
+        for (FoodItem item : updated.values()) {
+            batchItemMapper.updateById(item, userId);
+        }
+        if (!deleted.isEmpty()) {
+            batchItemMapper.softDeleteByIds(deleted);
+        }
+        delta.flush(batchStatsMapper);
+        InventoryVersionMapper batchVersionMapper = batchSqlSession.getMapper(InventoryVersionMapper.class);
+        bumpVersions((scopeType, scopeId) -> inventoryVersions.bump(batchVersionMapper, scopeType, scopeId),
+                lockedItems);
+        batchSqlSession.flushStatements();
+
+        for (FoodItem item : updated.values()) {
+            publishStatusChange(item, oldStatuses.get(item.getId()));
+            foodSearchIndex.upsert(item);
+        }
+        for (Long id : deleted) {
+            foodSearchIndex.remove(userId, id);
+        }
+        return results;
+    }
+
+    /**
+     * 批量软删除，一条 UPDATE ... WHERE id IN 完成
+     * @return 每个食材的处理结果，顺序与传入一致
+     */
+    @Transactional
+    public List<Map<String, Object>> deleteFoodItems(Long userId, List<Long> ids) {
+        checkBatchSize(ids);
+        Map<Long, FoodItem> current = lockUserItems(foodItemMapper, userId, ids);
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        List<FoodItem> deletedItems = new ArrayList<>();
+        FoodStatsDelta delta = new FoodStatsDelta();
+        for (int i = 0; i < ids.size(); i++) {
+            Map<String, Object> result = batchResult(i, ids.get(i));
+            results.add(result);
+            FoodItem item = current.remove(ids.get(i));
+            if (item == null) {
+                result.put("success", false);
+                result.put("message", "食材不存在或无权限");
+                continue;
+            }
+            delta.remove(item);
+            deleted.add(item.getId());
+            deletedItems.add(item);
+            result.put("success", true);
+        }
+        if (deleted.isEmpty()) {
+            return results;
+        }
+
+        foodItemMapper.softDeleteByIds(deleted);
+        delta.flush(foodStatsMapper);
+        bumpVersions(inventoryVersions::bump, deletedItems);
+        for (Long id : deleted) {
+            foodSearchIndex.remove(userId, id);
+        }
+        return results;
+    }
+
+    /**
+     * 将用户食材的状态批量写回数据库，只更新状态发生变化的行
+     * @param userId 用户ID
+     * @return 更新的行数
+     */
+    @Transactional
+    public int syncStatuses(Long userId) {
+        List<FoodItem> changed = new ArrayList<>();
+        FoodStatsDelta delta = new FoodStatsDelta();
+        for (FoodItem item : foodItemMapper.findByUserId(userId)) {
+            String status = calculateStatus(item);
+            if (!status.equals(item.getStatus())) {
+                delta.remove(copyOf(item));
+                String oldStatus = item.getStatus();
+                item.setStatus(status);
+                delta.add(item);
+                changed.add(item);
+                publishStatusChange(item, oldStatus);
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        int updated = foodItemMapper.batchUpdateStatus(changed);
+        delta.flush(foodStatsMapper);
+        bumpVersions(inventoryVersions::bump, changed);
+        return updated;
+    }
+
+    /**
+     * 按 food_item 重建所有用户和家庭组的统计计数，上线 food_stats 时为已有库存补齐一次；
+     * 补齐前增量写入的计数（可能是负数）一并清掉
+     * @return 重建的计数行数
+     */
+    @Transactional
+    public int rebuildAllFoodStatistics() {
+        int rows = 0;
+        for (String scopeType : List.of(InventoryVersions.USER, InventoryVersions.FAMILY)) {
+            foodStatsMapper.deleteAllScopes(scopeType);
+            rows += foodStatsMapper.rebuildAllScopes(scopeType);
+        }
+        inventoryVersions.bumpGlobal();
+        return rows;
+    }
+
+    /**
+     * 为旧数据补齐状态切换日期
+     * @return 补齐的行数
+     */
+    public int backfillTransitionDates() {
+        int filled = 0;
+        int batch;
+        do {
+            batch = foodItemMapper.backfillTransitionDates(NEAR_EXPIRY_DAYS, BACKFILL_BATCH);
+            filled += batch;
+        } while (batch == BACKFILL_BATCH);
+        if (filled > 0) {
+            inventoryVersions.bumpGlobal();
+        }
+        return filled;
+    }
+
+    /**
+     * 按日期批量推进食材状态，每种切换一条语句，供定时巡检调用
+     * @param today 巡检日期
+     * @return 状态发生变化的行数
+     */
+    @Transactional
+    public int sweepStatuses(LocalDate today) {
+        // 统计计数先按即将切换的行调整，再执行状态切换；切换的行同样先查出来，提交后推送提醒
+        List<FoodItem> expiring = foodItemMapper.findExpiredTransitions(today);
+        foodStatsMapper.applyExpiredTransition("USER", today);
+        foodStatsMapper.applyExpiredTransition("FAMILY", today);
+        int expired = foodItemMapper.markExpired(today);
+        for (FoodItem item : expiring) {
+            String oldStatus = item.getStatus();
+            item.setStatus("EXPIRED");
+            publishStatusChange(item, oldStatus);
+        }
+
+        List<FoodItem> nearing = foodItemMapper.findNearExpiryTransitions(today);
+        foodStatsMapper.applyNearExpiryTransition("USER", today);
+        foodStatsMapper.applyNearExpiryTransition("FAMILY", today);
+        int nearExpiry = foodItemMapper.markNearExpiry(today);
+        for (FoodItem item : nearing) {
+            item.setStatus("NEAR_EXPIRY");
+            publishStatusChange(item, "NORMAL");
+        }
+        if (expired + nearExpiry > 0) {
+            // 涉及的用户很多，只加全局版本号
+            inventoryVersions.bumpGlobal();
+        }
+        return expired + nearExpiry;
+    }
+
+    /**
+     * 按当天重新计算状态后分组：临期的越早过期越靠前，过期的过期越久越靠前，
+     * 数量不足的按剩余量占保底数量的比例从低到高
+     */
+    private FoodAlerts groupAlerts(List<FoodItem> items) {
+        List<FoodItem> nearExpiry = new ArrayList<>();
+        List<FoodItem> expired = new ArrayList<>();
+        List<FoodItem> insufficient = new ArrayList<>();
+        for (FoodItem item : items) {
+            refreshStatus(item);
+            switch (item.getStatus()) {
+                case "NEAR_EXPIRY" -> nearExpiry.add(item);
+                case "EXPIRED" -> expired.add(item);
+                case "INSUFFICIENT" -> insufficient.add(item);
+                default -> {
+                    // 按当天计算已恢复正常的不再提醒
+                }
+            }
+        }
+        Comparator<FoodItem> byExpiry = Comparator.comparing(FoodItem::getExpiryDate,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        nearExpiry.sort(byExpiry);
+        expired.sort(byExpiry);
+        insufficient.sort(Comparator.comparing(this::stockRatio).thenComparing(byExpiry));
+
+        FoodAlerts alerts = new FoodAlerts();
+        alerts.setNearExpiry(nearExpiry.stream().map(FoodAlert::of).toList());
+        alerts.setExpired(expired.stream().map(FoodAlert::of).toList());
+        alerts.setInsufficient(insufficient.stream().map(FoodAlert::of).toList());
+        return alerts;
+    }
+
+    private BigDecimal stockRatio(FoodItem item) {
+        if (item.getMinQuantity() == null || item.getMinQuantity().signum() <= 0) {
+            return BigDecimal.ONE;
+        }
+        return item.getQuantity().divide(item.getMinQuantity(), 4, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 状态有变化时发布事件，事务提交后推送给订阅了提醒的客户端；新增的正常食材不算变化
+     * @param oldStatus 新增的食材为 null
+     */
+    private void publishStatusChange(FoodItem item, String oldStatus) {
+        String newStatus = item.getStatus();
+        if (newStatus == null || newStatus.equals(oldStatus) || (oldStatus == null && "NORMAL".equals(newStatus))) {
+            return;
+        }
+        eventPublisher.publishEvent(new FoodStatusChangedEvent(item.getUserId(), item.getFamilyId(), item.getId(),
+                item.getName(), oldStatus, newStatus, item.getExpiryDate()));
+    }
+
+    /**
+     * 食材所属用户和家庭组的库存版本号加一
+     */
+    private void bumpVersions(FoodItem item) {
+        inventoryVersions.bump(InventoryVersions.USER, item.getUserId());
+        inventoryVersions.bump(InventoryVersions.FAMILY, item.getFamilyId());
+    }
+
+    /**
+     * 一批食材涉及的每个用户和家庭组各加一次
+     */
+    private void bumpVersions(BiConsumer<String, Long> bump, Collection<FoodItem> items) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> familyIds = new LinkedHashSet<>();
+        for (FoodItem item : items) {
+            userIds.add(item.getUserId());
+            if (item.getFamilyId() != null) {
+                familyIds.add(item.getFamilyId());
+            }
+        }
+        for (Long userId : userIds) {
+            bump.accept(InventoryVersions.USER, userId);
+        }
+        for (Long familyId : familyIds) {
+            bump.accept(InventoryVersions.FAMILY, familyId);
+        }
+    }
+
+    private void checkPositive(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("数量必须大于0");
+        }
+    }
+
+    private void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("批量操作的食材不能为空");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("一次最多处理" + MAX_BATCH_SIZE + "个食材");
+        }
+    }
+
+    private Map<String, Object> batchResult(int index, Long id) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("index", index);
+        result.put("id", id);
+        return result;
+    }
+
+    /**
+     * 新增食材的必填项（对应表上的 NOT NULL 列）
+     */
+    private String validateNewItem(FoodItem item) {
+        if (item == null) {
+            return "食材不能为空";
+        }
+        if (item.getName() == null || item.getName().isBlank()) {
+            return "食材名称不能为空";
+        }
+        if (item.getQuantity() == null) {
+            return "数量不能为空";
+        }
+        if (item.getExpiryDate() == null) {
+            return "过期日期不能为空";
+        }
+        return null;
+    }
+
+    /**
+     * 锁定用户名下的食材并按 id 索引，不属于该用户的 id 不会出现在结果里
+     */
+    private Map<Long, FoodItem> lockUserItems(FoodItemMapper mapper, Long userId, List<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.remove(null);
+        Map<Long, FoodItem> items = new HashMap<>();
+        if (distinctIds.isEmpty()) {
+            return items;
+        }
+        for (FoodItem item : mapper.findByIdsForUpdate(userId, distinctIds)) {
+            items.put(item.getId(), item);
+        }
+        return items;
+    }
+
+    private java.util.Map<String, Integer> toStatistics(java.util.Map<String, Object> row) {
+        java.util.Map<String, Integer> stats = new java.util.HashMap<>();
+        for (String key : new String[]{"totalCategories", "nearExpiry", "insufficient", "expired", "totalItems"}) {
+            Object value = row != null ? row.get(key) : null;
+            stats.put(key, value instanceof Number ? ((Number) value).intValue() : 0);
+        }
+        return stats;
+    }
+
+    /**
+     * 复制统计和状态变化判断需要的字段，用于记录修改前的状态
+     */
+    private FoodItem copyOf(FoodItem item) {
+        FoodItem copy = new FoodItem();
+        copy.setId(item.getId());
+        copy.setUserId(item.getUserId());
+        copy.setFamilyId(item.getFamilyId());
+        copy.setName(item.getName());
+        copy.setCategory(item.getCategory());
+        copy.setQuantity(item.getQuantity());
+        copy.setMinQuantity(item.getMinQuantity());
+        copy.setExpiryDate(item.getExpiryDate());
+        copy.setStatus(item.getStatus());
+        return copy;
+    }
+
+    private void applyTransitionDates(FoodItem item) {
+        LocalDate expiryDate = item.getExpiryDate();
+        if (expiryDate == null) {
+            item.setNearExpiryDate(null);
+            item.setExpiredDate(null);
+            return;
+        }
+        item.setNearExpiryDate(expiryDate.minusDays(NEAR_EXPIRY_DAYS));
+        item.setExpiredDate(expiryDate.plusDays(1));
+    }
+
+    private void refreshStatus(FoodItem item) {
         item.setStatus(calculateStatus(item));
-        foodItemMapper.updateById(item);
     }
 
     private String calculateStatus(FoodItem item) {
@@ -258,7 +1049,7 @@ public class FoodItemService {
 
             if (daysUntilExpiry < 0) {
                 return "EXPIRED";
-            } else if (daysUntilExpiry <= 3) {
+            } else if (daysUntilExpiry <= NEAR_EXPIRY_DAYS) {
                 return "NEAR_EXPIRY";
             }
         }
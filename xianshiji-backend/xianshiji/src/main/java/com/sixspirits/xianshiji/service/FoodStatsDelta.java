@@ -0,0 +1,101 @@
+package com.sixspirits.xianshiji.service;
+
+import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.mapper.FoodStatsMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 累积一次写操作对 food_stats 的增量，按 (范围, 分类) 合并后再写库，
+ * 相互抵消的增量不会产生语句
+ */
+class FoodStatsDelta {
+
+    private static final int ITEMS = 0;
+    private static final int NEAR_EXPIRY = 1;
+    private static final int EXPIRED = 2;
+    private static final int INSUFFICIENT = 3;
+
+    private final Map<Key, int[]> deltas = new LinkedHashMap<>();
+
+    /**
+     * 记录一个食材进入统计
+     */
+    FoodStatsDelta add(FoodItem item) {
+        return apply(item, 1);
+    }
+
+    /**
+     * 记录一个食材移出统计
+     */
+    FoodStatsDelta remove(FoodItem item) {
+        return apply(item, -1);
+    }
+
+    void flush(FoodStatsMapper mapper) {
+        for (Map.Entry<Key, int[]> entry : deltas.entrySet()) {
+            int[] d = entry.getValue();
+            if (d[ITEMS] == 0 && d[NEAR_EXPIRY] == 0 && d[EXPIRED] == 0 && d[INSUFFICIENT] == 0) {
+                continue;
+            }
+            Key key = entry.getKey();
+            mapper.applyDelta(key.scopeType, key.scopeId, key.category,
+                    d[ITEMS], d[NEAR_EXPIRY], d[EXPIRED], d[INSUFFICIENT]);
+        }
+        deltas.clear();
+    }
+
+    private FoodStatsDelta apply(FoodItem item, int sign) {
+        String category = item.getCategory() != null ? item.getCategory() : "";
+        apply(new Key("USER", item.getUserId(), category), item.getStatus(), sign);
+        if (item.getFamilyId() != null) {
+            apply(new Key("FAMILY", item.getFamilyId(), category), item.getStatus(), sign);
+        }
+        return this;
+    }
+
+    private void apply(Key key, String status, int sign) {
+        int[] d = deltas.computeIfAbsent(key, k -> new int[4]);
+        d[ITEMS] += sign;
+        if ("NEAR_EXPIRY".equals(status)) {
+            d[NEAR_EXPIRY] += sign;
+        } else if ("EXPIRED".equals(status)) {
+            d[EXPIRED] += sign;
+        } else if ("INSUFFICIENT".equals(status)) {
+            d[INSUFFICIENT] += sign;
+        }
+    }
+
+    private static final class Key {
+        private final String scopeType;
+        private final Long scopeId;
+        private final String category;
+
+        private Key(String scopeType, Long scopeId, String category) {
+            this.scopeType = scopeType;
+            this.scopeId = scopeId;
+            this.category = category;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return scopeType.equals(other.scopeType)
+                    && Objects.equals(scopeId, other.scopeId)
+                    && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scopeType, scopeId, category);
+        }
+    }
+}
@@ -1,86 +1,313 @@
 package com.sixspirits.xianshiji.service;
 
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.common.VersionConflictException;
+import com.sixspirits.xianshiji.entity.FoodItem;
 import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.entity.RecipeDetail;
 import com.sixspirits.xianshiji.entity.RecipeIngredient;
 import com.sixspirits.xianshiji.mapper.RecipeIngredientMapper;
+import com.sixspirits.xianshiji.event.RecipeChangedEvent;
 import com.sixspirits.xianshiji.mapper.RecipeMapper;
+import com.sixspirits.xianshiji.search.CookableRecipe;
+import com.sixspirits.xianshiji.search.IngredientMatcher;
+import com.sixspirits.xianshiji.search.RecipeSearchEngine;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class RecipeService {
 
+    // 批量详情一次最多查询的菜谱数
+    private static final int MAX_DETAIL_BATCH = 100;
+
+    /**
+     * PATCH 接口允许修改的字段，配料仍通过 PUT 整体提交
+     */
+    private static final Set<String> PATCHABLE_FIELDS = Set.of(
+            "name", "imageUrl", "description", "steps", "prepTime", "cookTime", "difficulty", "cuisineType", "servings");
+
     private final RecipeMapper recipeMapper;
     private final RecipeIngredientMapper recipeIngredientMapper;
+    private final RecipeCatalog recipeCatalog;
+    private final RecipeSearchEngine recipeSearchEngine;
+    private final IngredientMatcher ingredientMatcher;
+    private final FoodItemService foodItemService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JsonMapper jsonMapper;
 
-    public RecipeService(RecipeMapper recipeMapper, RecipeIngredientMapper recipeIngredientMapper) {
+    public RecipeService(RecipeMapper recipeMapper, RecipeIngredientMapper recipeIngredientMapper,
+                         RecipeCatalog recipeCatalog, RecipeSearchEngine recipeSearchEngine, IngredientMatcher ingredientMatcher,
+                         FoodItemService foodItemService, ApplicationEventPublisher eventPublisher,
+                         JsonMapper jsonMapper) {
         this.recipeMapper = recipeMapper;
         this.recipeIngredientMapper = recipeIngredientMapper;
+        this.recipeCatalog = recipeCatalog;
+        this.recipeSearchEngine = recipeSearchEngine;
+        this.ingredientMatcher = ingredientMatcher;
+        this.foodItemService = foodItemService;
+        this.eventPublisher = eventPublisher;
+        this.jsonMapper = jsonMapper;
     }
 
     public List<Recipe> getAllRecipes() {
-        return recipeMapper.findAll();
+        return recipeCatalog.getAll();
     }
 
     public List<Recipe> getRecipesByCuisineType(String cuisineType) {
-        return recipeMapper.findByCuisineType(cuisineType);
+        return recipeCatalog.getByCuisineType(cuisineType);
+    }
+
+    /**
+     * 以下方法返回预先序列化好的完整响应体，供控制器直接输出
+     */
+    public RecipeCatalog.CachedJson getAllRecipesJson() {
+        return recipeCatalog.getAllJson();
+    }
+
+    /**
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     */
+    public RecipeCatalog.CachedJson getRecipesPageJson(String cursor, int limit) {
+        return recipeCatalog.getPageJson(PageCursor.decode(cursor), PageCursor.normalizeLimit(limit));
+    }
+
+    public RecipeCatalog.CachedJson getRecipesByCuisineTypeJson(String cuisineType) {
+        return recipeCatalog.getByCuisineTypeJson(cuisineType);
+    }
+
+    public RecipeCatalog.CachedJson getRecipeByIdJson(Long id) {
+        return recipeCatalog.getByIdJson(id);
     }
 
     public List<Recipe> searchRecipes(String keyword) {
-        return recipeMapper.findByKeyword(keyword);
+        return searchRecipes(keyword, 0);
+    }
+
+    /**
+     * 在内存倒排索引中搜索菜谱（名称、简介、菜系、配料），按相关度排序
+     * @param limit 最多返回条数，小于等于 0 表示不限
+     */
+    public List<Recipe> searchRecipes(String keyword, int limit) {
+        return recipeSearchEngine.search(keyword, limit);
+    }
+
+    /**
+     * 按现有库存推荐菜谱，优先用到临期食材的
+     * @param familyId 为空时使用个人库存，否则使用家庭库存（需是家庭成员）
+     */
+    public List<CookableRecipe> getCookableRecipes(Long userId, Long familyId, int limit) {
+        List<FoodItem> inventory;
+        if (familyId != null) {
+            inventory = foodItemService.getFamilyFoodItems(userId, familyId);
+        } else {
+            inventory = foodItemService.getUserFoodItems(userId);
+        }
+        return ingredientMatcher.match(inventory, limit);
     }
 
     public Recipe getRecipeById(Long id) {
-        return recipeMapper.findById(id);
+        return recipeCatalog.getById(id);
     }
 
     public List<RecipeIngredient> getRecipeIngredients(Long recipeId) {
-        return recipeIngredientMapper.findByRecipeId(recipeId);
+        return recipeCatalog.getIngredients(recipeId);
+    }
+
+    /**
+     * 菜谱及其配料，由目录快照提供
+     * @return 菜谱不存在时返回 null
+     */
+    public RecipeCatalog.CachedJson getRecipeDetailJson(Long id) {
+        return recipeCatalog.getDetailJson(id);
+    }
+
+    /**
+     * 批量获取菜谱详情，按传入顺序返回，不存在的 id 跳过
+     */
+    public List<RecipeDetail> getRecipeDetails(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.size() > MAX_DETAIL_BATCH) {
+            throw new RuntimeException("一次最多查询" + MAX_DETAIL_BATCH + "个菜谱");
+        }
+        return recipeCatalog.getDetails(distinctIds);
     }
 
+    /**
+     * @param userId 创建者；为 null 时（未登录的旧客户端）菜谱之后不能通过接口修改
+     */
     @Transactional
-    public Recipe addRecipe(Recipe recipe, List<RecipeIngredient> ingredients) {
+    public Recipe addRecipe(Recipe recipe, List<RecipeIngredient> ingredients, Long userId) {
         recipe.setCreatedAt(LocalDateTime.now());
+        recipe.setCreatedBy(userId);
         recipeMapper.insert(recipe);
 
-        // 插入配料信息
+        // 插入配料信息，一条多行 INSERT
         if (ingredients != null && !ingredients.isEmpty()) {
             for (RecipeIngredient ingredient : ingredients) {
                 ingredient.setRecipeId(recipe.getId());
-                recipeIngredientMapper.insert(ingredient);
             }
+            recipeIngredientMapper.insertBatch(ingredients);
         }
 
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId()));
         return recipe;
     }
 
+    /**
+     * @param userId 当前用户，需是菜谱的创建者
+     */
     @Transactional
-    public Recipe updateRecipe(Recipe recipe, List<RecipeIngredient> ingredients) {
-        recipeMapper.updateById(recipe);
+    public Recipe updateRecipe(Recipe recipe, List<RecipeIngredient> ingredients, Long userId) {
+        recipe.setCreatedBy(userId);
+        if (recipeMapper.updateById(recipe) == 0) {
+            throw new RuntimeException("菜谱不存在或无权修改");
+        }
 
-        // 删除旧的配料信息
-        recipeIngredientMapper.deleteByRecipeId(recipe.getId());
+        // 与旧配料比对，只改动有变化的行
+        saveIngredientChanges(recipe.getId(), ingredients != null ? ingredients : new ArrayList<>());
 
-        // 插入新的配料信息
-        if (ingredients != null && !ingredients.isEmpty()) {
-            for (RecipeIngredient ingredient : ingredients) {
-                ingredient.setRecipeId(recipe.getId());
-                recipeIngredientMapper.insert(ingredient);
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId()));
+        return recipe;
+    }
+
+    /**
+     * 部分修改：只写入 changes 中出现的字段，步骤等大字段不在其中时不会重写
+     * @param userId 当前用户，需是菜谱的创建者
+     * @param changes 字段名到新值，version 为客户端读到的版本号（可省略）
+     * @return 修改后的菜谱
+     * @throws VersionConflictException 菜谱已被其他请求修改
+     */
+    @Transactional
+    public Recipe patchRecipe(Long id, Long userId, Map<String, Object> changes) {
+        Recipe patch = jsonMapper.convertValue(changes, Recipe.class);
+        patch.setId(id);
+        Set<String> fields = new LinkedHashSet<>();
+        for (String field : changes.keySet()) {
+            if (PATCHABLE_FIELDS.contains(field)) {
+                fields.add(field);
             }
         }
+        if (fields.isEmpty()) {
+            throw new RuntimeException("没有可修改的字段");
+        }
+        if (fields.contains("name") && (patch.getName() == null || patch.getName().isBlank())) {
+            throw new RuntimeException("菜谱名称不能为空");
+        }
 
-        return recipe;
+        if (recipeMapper.patchById(patch, fields, patch.getVersion(), userId) == 0) {
+            Recipe current = recipeMapper.findById(id);
+            if (current == null || !userId.equals(current.getCreatedBy())) {
+                throw new RuntimeException("菜谱不存在或无权修改");
+            }
+            throw new VersionConflictException("菜谱已被修改，请刷新后重试");
+        }
+        eventPublisher.publishEvent(new RecipeChangedEvent(id));
+        return recipeMapper.findById(id);
+    }
+
+    /**
+     * 把菜谱的配料改成 ingredients：先按 id、再按配料名对应到旧行，内容相同的不动；
+     * 剩下对应不上的新旧配料两两复用旧行更新，只有多出来的才插入或删除
+     */
+    private void saveIngredientChanges(Long recipeId, List<RecipeIngredient> ingredients) {
+        Map<Long, RecipeIngredient> unmatchedOld = new LinkedHashMap<>();
+        for (RecipeIngredient old : recipeIngredientMapper.findByRecipeId(recipeId)) {
+            unmatchedOld.put(old.getId(), old);
+        }
+
+        List<RecipeIngredient> toUpdate = new ArrayList<>();
+        List<RecipeIngredient> unmatchedNew = new ArrayList<>();
+        for (RecipeIngredient ingredient : ingredients) {
+            ingredient.setRecipeId(recipeId);
+            RecipeIngredient old = ingredient.getId() != null ? unmatchedOld.remove(ingredient.getId()) : null;
+            if (old != null) {
+                if (!sameContent(old, ingredient)) {
+                    toUpdate.add(ingredient);
+                }
+            } else {
+                unmatchedNew.add(ingredient);
+            }
+        }
+
+        // 没带 id（或 id 不属于该菜谱）的按配料名对应
+        Map<String, RecipeIngredient> oldByName = new HashMap<>();
+        for (RecipeIngredient old : unmatchedOld.values()) {
+            oldByName.putIfAbsent(old.getIngredientName(), old);
+        }
+        List<RecipeIngredient> remainingNew = new ArrayList<>();
+        for (RecipeIngredient ingredient : unmatchedNew) {
+            RecipeIngredient old = oldByName.remove(ingredient.getIngredientName());
+            if (old == null) {
+                remainingNew.add(ingredient);
+                continue;
+            }
+            unmatchedOld.remove(old.getId());
+            ingredient.setId(old.getId());
+            if (!sameContent(old, ingredient)) {
+                toUpdate.add(ingredient);
+            }
+        }
+
+        // 剩余的新配料优先复用剩余的旧行
+        List<RecipeIngredient> toInsert = new ArrayList<>();
+        Iterator<RecipeIngredient> reusable = unmatchedOld.values().iterator();
+        for (RecipeIngredient ingredient : remainingNew) {
+            if (reusable.hasNext()) {
+                ingredient.setId(reusable.next().getId());
+                reusable.remove();
+                toUpdate.add(ingredient);
+            } else {
+                ingredient.setId(null);
+                toInsert.add(ingredient);
+            }
+        }
+
+        for (RecipeIngredient ingredient : toUpdate) {
+            recipeIngredientMapper.updateById(ingredient);
+        }
+        if (!toInsert.isEmpty()) {
+            recipeIngredientMapper.insertBatch(toInsert);
+        }
+        if (!unmatchedOld.isEmpty()) {
+            recipeIngredientMapper.deleteByIds(new ArrayList<>(unmatchedOld.keySet()));
+        }
     }
 
+    private boolean sameContent(RecipeIngredient a, RecipeIngredient b) {
+        return Objects.equals(a.getIngredientName(), b.getIngredientName())
+                && Objects.equals(a.getAmount(), b.getAmount());
+    }
+
+    /**
+     * @param userId 当前用户，需是菜谱的创建者
+     * @return 菜谱不存在或不是创建者时返回 false
+     */
     @Transactional
-    public boolean deleteRecipe(Long id) {
-        // 删除配料信息
+    public boolean deleteRecipe(Long id, Long userId) {
+        // 先删菜谱，条件里校验创建者，删不到时配料保持不动
+        if (recipeMapper.deleteById(id, userId) == 0) {
+            return false;
+        }
         recipeIngredientMapper.deleteByRecipeId(id);
-        // 删除菜谱
-        recipeMapper.deleteById(id);
+        eventPublisher.publishEvent(new RecipeChangedEvent(id));
         return true;
     }
 }
\ No newline at end of file
@@ -1,76 +1,156 @@
 package com.sixspirits.xianshiji.service;
 
+import com.sixspirits.xianshiji.cache.UserProfiles;
+import com.sixspirits.xianshiji.common.CursorPage;
+import com.sixspirits.xianshiji.common.PageCursor;
 import com.sixspirits.xianshiji.entity.User;
 import com.sixspirits.xianshiji.mapper.UserMapper;
+import com.sixspirits.xianshiji.security.PasswordHasher;
+import com.sixspirits.xianshiji.task.LastLoginRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserMapper userMapper;
+    private final UserProfiles userProfiles;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final PasswordHasher passwordHasher;
+    // 哈希完成后的写库放到 Spring Boot 的通用任务线程池，哈希线程只做计算，不等数据库连接
+    private final Executor dbExecutor;
 
-    public UserService(UserMapper userMapper) {
+    public UserService(UserMapper userMapper, UserProfiles userProfiles, LastLoginRecorder lastLoginRecorder,
+            PasswordHasher passwordHasher, @Qualifier("applicationTaskExecutor") Executor dbExecutor) {
         this.userMapper = userMapper;
+        this.userProfiles = userProfiles;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.passwordHasher = passwordHasher;
+        this.dbExecutor = dbExecutor;
     }
 
     public List<User> getAllUsers() {
         return userMapper.findAll();
     }
 
-    public User register(String phone, String email, String password, String nickname) {
-        // 检查是否已存在
-        User existing = userMapper.findByPhoneOrEmail(phone != null ? phone : email);
-        if (existing != null) {
+    /**
+     * 按注册时间倒序分页获取用户
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     */
+    public CursorPage<User> getUsersPage(String cursor, int limit) {
+        int size = PageCursor.normalizeLimit(limit);
+        List<User> rows = userMapper.findPage(PageCursor.decode(cursor), size + 1);
+        return CursorPage.of(rows, size, User::getCreatedAt, User::getId);
+    }
+
+    /**
+     * 注册；密码在哈希线程池里处理，线程池满时 future 以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<User> register(String phone, String email, String password, String nickname) {
+        // 检查是否已存在，手机号和邮箱都要检查
+        if ((phone != null && userMapper.findByPhone(phone) != null)
+                || (email != null && userMapper.findByEmail(email) != null)) {
             throw new RuntimeException("用户已存在");
         }
 
-        User user = new User();
-        user.setPhone(phone);
-        user.setEmail(email);
-        user.setPassword(password); // 实际应加密
-        user.setNickname(nickname);
-        user.setStatus(1);
-        user.setCreatedAt(LocalDateTime.now());
-        user.setUpdatedAt(LocalDateTime.now());
-        userMapper.insert(user);
-        return user;
+        return passwordHasher.hash(password).thenApplyAsync(hash -> {
+            User user = new User();
+            user.setPhone(phone);
+            user.setEmail(email);
+            user.setPassword(hash);
+            user.setNickname(nickname);
+            user.setStatus(1);
+            user.setCreatedAt(LocalDateTime.now());
+            user.setUpdatedAt(LocalDateTime.now());
+            userMapper.insert(user);
+            return user;
+        }, dbExecutor);
     }
 
-    public User login(String account, String password) {
-        User user = userMapper.findByPhoneOrEmail(account);
-        if (user == null || !password.equals(user.getPassword())) { // 实际应验证加密密码
+    public CompletableFuture<User> login(String account, String password) {
+        User user = findByAccount(account);
+        if (user == null) {
             throw new RuntimeException("账号或密码错误");
         }
-        user.setUpdatedAt(LocalDateTime.now());
-        userMapper.updateById(user);
-        return user;
+        String storedPassword = user.getPassword();
+        // 校验之后只有内存操作，留在哈希线程上即可
+        return passwordHasher.matches(password, storedPassword).thenApply(matched -> {
+            if (!matched) {
+                throw new RuntimeException("账号或密码错误");
+            }
+            // 明文等旧格式的密码在登录成功后换成新哈希，不等待结果
+            if (passwordHasher.needsRehash(storedPassword)) {
+                rehashPassword(user.getId(), password, storedPassword);
+            }
+            // 登录时间先记在内存里，由 LastLoginRecorder 定期批量写入
+            LocalDateTime now = LocalDateTime.now();
+            lastLoginRecorder.record(user.getId(), now);
+            user.setLastLoginAt(now);
+            return user;
+        });
+    }
+
+    private void rehashPassword(Long userId, String rawPassword, String storedPassword) {
+        passwordHasher.hash(rawPassword)
+                .thenAcceptAsync(hash -> userMapper.updatePasswordIfUnchanged(userId, storedPassword, hash), dbExecutor)
+                .exceptionally(e -> {
+                    // 线程池满或写库失败时保留旧密码，下次登录再换
+                    log.warn("用户 {} 的密码重新哈希失败: {}", userId, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * 按账号格式只查一个唯一索引：含 @ 的是邮箱，否则是手机号
+     */
+    private User findByAccount(String account) {
+        if (account == null || account.isBlank()) {
+            return null;
+        }
+        String trimmed = account.trim();
+        return trimmed.contains("@") ? userMapper.findByEmail(trimmed) : userMapper.findByPhone(trimmed);
     }
 
-    public User updateUser(Long userId, String nickname, String phone, String email, String oldPassword,
-            String newPassword) {
+    public CompletableFuture<User> updateUser(Long userId, String nickname, String phone, String email,
+            String oldPassword, String newPassword) {
         User user = userMapper.findById(userId);
         if (user == null) {
             throw new RuntimeException("用户不存在");
         }
 
-        // 如果要修改密码，需要验证旧密码
+        // 如果要修改密码，需要验证旧密码，再哈希新密码
+        CompletableFuture<String> newHash = CompletableFuture.completedFuture(null);
         if (newPassword != null && !newPassword.trim().isEmpty()) {
-            if (oldPassword == null || !oldPassword.equals(user.getPassword())) {
-                throw new RuntimeException("当前密码错误");
-            }
-            user.setPassword(newPassword);
+            newHash = passwordHasher.matches(oldPassword, user.getPassword()).thenCompose(matched -> {
+                if (!matched) {
+                    throw new RuntimeException("当前密码错误");
+                }
+                return passwordHasher.hash(newPassword);
+            });
         }
 
-        user.setNickname(nickname);
-        user.setPhone(phone);
-        user.setEmail(email);
-        user.setUpdatedAt(LocalDateTime.now());
+        return newHash.thenApplyAsync(hash -> {
+            if (hash != null) {
+                user.setPassword(hash);
+            }
+            user.setNickname(nickname);
+            user.setPhone(phone);
+            user.setEmail(email);
+            user.setUpdatedAt(LocalDateTime.now());
 
-        userMapper.updateById(user);
-        return user;
+            userMapper.updateById(user);
+            userProfiles.invalidate(userId);
+            return user;
+        }, dbExecutor);
     }
 
     public void updateAvatar(Long userId, String avatarUrl) {
@@ -79,6 +159,7 @@ public class UserService {
             user.setAvatarUrl(avatarUrl);
             user.setUpdatedAt(LocalDateTime.now());
             userMapper.updateById(user);
+            userProfiles.invalidate(userId);
         }
     }
 
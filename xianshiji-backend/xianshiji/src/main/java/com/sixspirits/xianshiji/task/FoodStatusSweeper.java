@@ -0,0 +1,100 @@
+package com.sixspirits.xianshiji.task;
+
+import com.sixspirits.xianshiji.mapper.JobLockMapper;
+import com.sixspirits.xianshiji.service.FoodItemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * 食材过期巡检：按 near_expiry_date / expired_date 批量推进 food_item.status。
+ * 多节点部署时通过 job_lock 表的租约保证同一时刻只有一个节点执行。
+ */
+@Component
+public class FoodStatusSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(FoodStatusSweeper.class);
+
+    private static final String LOCK_NAME = "food_status_sweeper";
+    // 一次性任务，完成后在 job_lock 中永久占用，重启和其他节点都不会再执行
+    private static final String STATS_BACKFILL = "food_stats_backfill";
+    private static final String TRANSITION_BACKFILL = "transition_dates_backfill";
+    private static final int LEASE_SECONDS = 600;
+
+    private final FoodItemService foodItemService;
+    private final JobLockMapper jobLockMapper;
+    private final String owner = UUID.randomUUID().toString();
+
+    public FoodStatusSweeper(FoodItemService foodItemService, JobLockMapper jobLockMapper) {
+        this.foodItemService = foodItemService;
+        this.jobLockMapper = jobLockMapper;
+    }
+
+    /**
+     * 启动后先跑一次，旧数据的补齐不用等到下一个整点
+     */
+    @Scheduled(initialDelayString = "${xianshiji.sweeper.startup-delay:30000}")
+    public void sweepOnStartup() {
+        sweep();
+    }
+
+    // 每小时跑一次，零点之后的第一次完成当天的切换，其余几次基本是空扫
+    @Scheduled(cron = "${xianshiji.sweeper.cron:10 0 * * * *}")
+    public void sweep() {
+        try {
+            jobLockMapper.insertIfAbsent(LOCK_NAME);
+            if (jobLockMapper.tryAcquire(LOCK_NAME, owner, LEASE_SECONDS) == 0) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("过期巡检获取锁失败: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            runOnce(TRANSITION_BACKFILL, "补齐状态切换日期", foodItemService::backfillTransitionDates);
+            runOnce(STATS_BACKFILL, "为现有库存重建统计计数", foodItemService::rebuildAllFoodStatistics);
+            int changed = foodItemService.sweepStatuses(LocalDate.now());
+            log.info("过期巡检完成，状态变化 {} 行", changed);
+        } catch (Exception e) {
+            log.error("过期巡检失败", e);
+        } finally {
+            try {
+                jobLockMapper.release(LOCK_NAME, owner);
+            } catch (Exception e) {
+                log.warn("过期巡检释放锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 上线前已有数据的一次性补齐（状态切换日期、food_stats 计数），全局只执行一次；失败时释放锁，下次巡检重试
+     */
+    private void runOnce(String name, String description, IntSupplier task) {
+        boolean acquired = false;
+        try {
+            jobLockMapper.insertIfAbsent(name);
+            acquired = jobLockMapper.tryAcquire(name, owner, LEASE_SECONDS) > 0;
+            if (!acquired) {
+                return;
+            }
+            int rows = task.getAsInt();
+            jobLockMapper.finish(name, owner);
+            log.info("{}完成，{} 行", description, rows);
+        } catch (Exception e) {
+            log.error("{}失败，下次巡检重试", description, e);
+            if (acquired) {
+                try {
+                    jobLockMapper.release(name, owner);
+                } catch (Exception releaseError) {
+                    log.warn("释放 {} 锁失败: {}", name, releaseError.getMessage());
+                }
+            }
+        }
+    }
+}
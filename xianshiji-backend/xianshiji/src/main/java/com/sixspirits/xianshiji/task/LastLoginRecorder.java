@@ -0,0 +1,81 @@
+package com.sixspirits.xianshiji.task;
+
+import com.sixspirits.xianshiji.mapper.UserMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 最近登录时间的写缓冲：登录时只记在内存里，同一用户多次登录合并成一条，
+ * 定期按批写入 user.last_login_at，登录路径上不再有写库操作。
+ * 进程异常退出时最多丢失一个周期内的登录时间。
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    // 一条 UPDATE 最多写入的用户数
+    private static final int BATCH_SIZE = 500;
+    // 缓冲的用户数超过该值时丢弃新的记录，避免写库长期失败时占满内存
+    private static final int MAX_PENDING = 100_000;
+
+    private final UserMapper userMapper;
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public LastLoginRecorder(UserMapper userMapper) {
+        this.userMapper = userMapper;
+    }
+
+    public void record(Long userId, LocalDateTime loginAt) {
+        if (userId == null) {
+            return;
+        }
+        if (pending.size() >= MAX_PENDING && !pending.containsKey(userId)) {
+            return;
+        }
+        pending.merge(userId, loginAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @Scheduled(fixedDelayString = "${xianshiji.last-login.flush-interval:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < userIds.size(); from += BATCH_SIZE) {
+            Map<Long, LocalDateTime> batch = new LinkedHashMap<>();
+            for (Long userId : userIds.subList(from, Math.min(from + BATCH_SIZE, userIds.size()))) {
+                LocalDateTime loginAt = pending.remove(userId);
+                if (loginAt != null) {
+                    batch.put(userId, loginAt);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                userMapper.updateLastLoginAt(batch);
+            } catch (Exception e) {
+                log.warn("写入最近登录时间失败，下次重试: {}", e.getMessage());
+                // 放回缓冲区，与期间的新登录合并
+                batch.forEach((userId, loginAt) -> pending.merge(userId, loginAt, (a, b) -> a.isAfter(b) ? a : b));
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
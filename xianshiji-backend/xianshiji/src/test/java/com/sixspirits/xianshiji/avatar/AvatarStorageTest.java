@@ -0,0 +1,81 @@
+package com.sixspirits.xianshiji.avatar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvatarStorageTest {
+
+    private static final String ID = "53ca7d0f-62b9-461d-b990-ed605df14141";
+
+    private final AvatarStorage storage = new AvatarStorage();
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    @Test
+    void sniffsSupportedImageFormatsFromTheHeader() {
+        assertEquals("jpg", AvatarStorage.sniffExtension(bytes(0xFF, 0xD8, 0xFF, 0xE0)));
+        assertEquals("png", AvatarStorage.sniffExtension(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)));
+        assertEquals("gif", AvatarStorage.sniffExtension("GIF89a".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("webp", AvatarStorage.sniffExtension("RIFF\0\0\0\0WEBP".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void rejectsUnknownOrTruncatedHeaders() {
+        assertNull(AvatarStorage.sniffExtension(new byte[0]));
+        assertNull(AvatarStorage.sniffExtension(bytes(0xFF, 0xD8)));
+        assertNull(AvatarStorage.sniffExtension(bytes(0x89, 'P', 'N', 'G')));
+        assertNull(AvatarStorage.sniffExtension("RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(AvatarStorage.sniffExtension("<svg xmlns=".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void variantIsTheSmallestSizeNotBelowTheRequest() {
+        assertEquals(ID + "_64.jpg", storage.variantFor(ID + ".jpg", 1));
+        assertEquals(ID + "_64.jpg", storage.variantFor(ID + ".png", 64));
+        assertEquals(ID + "_128.jpg", storage.variantFor(ID + ".webp", 65));
+        assertEquals(ID + "_256.jpg", storage.variantFor(ID + ".gif", 256));
+    }
+
+    @Test
+    void noVariantForOversizedRequestsOrForeignFiles() {
+        assertNull(storage.variantFor(ID + ".jpg", 257));
+        assertNull(storage.variantFor(ID + ".jpg", 0));
+        assertNull(storage.variantFor(ID + "_64.jpg", 64));
+        assertNull(storage.variantFor("avatar.jpg", 64));
+        assertNull(storage.variantFor("../" + ID + ".jpg", 64));
+    }
+
+    @Test
+    void storeRejectsNonImagesBeforeWritingAnything() {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.jpg", "image/jpeg",
+                "<html></html>".getBytes(StandardCharsets.US_ASCII));
+
+        assertThrows(IllegalArgumentException.class, () -> storage.store(file));
+    }
+
+    @Test
+    void storeRejectsOversizedFiles() {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.jpg", "image/jpeg",
+                new byte[(int) AvatarStorage.MAX_BYTES + 1]);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.store(file));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
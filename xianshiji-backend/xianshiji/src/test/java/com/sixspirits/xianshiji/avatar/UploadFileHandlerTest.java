@@ -0,0 +1,155 @@
+package com.sixspirits.xianshiji.avatar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class UploadFileHandlerTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    private final UploadFileHandler handler = new UploadFileHandler(mock(AvatarStorage.class));
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(UploadFileHandler.UPLOAD_ROOT);
+        file = UploadFileHandler.UPLOAD_ROOT.resolve("test-" + UUID.randomUUID() + ".png");
+        Files.write(file, CONTENT);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void parseRangeHandlesSingleRanges() {
+        assertArrayEquals(new long[]{0, 5}, UploadFileHandler.parseRange("bytes=0-4", 10));
+        assertArrayEquals(new long[]{5, 10}, UploadFileHandler.parseRange("bytes=5-", 10));
+        assertArrayEquals(new long[]{7, 10}, UploadFileHandler.parseRange("bytes=-3", 10));
+        // 结束位置超出文件时截到末尾，后缀长度超出时从头开始
+        assertArrayEquals(new long[]{8, 10}, UploadFileHandler.parseRange("bytes=8-100", 10));
+        assertArrayEquals(new long[]{0, 10}, UploadFileHandler.parseRange("bytes=-100", 10));
+    }
+
+    @Test
+    void parseRangeIgnoresUnsupportedOrMalformedRanges() {
+        assertArrayEquals(new long[0], UploadFileHandler.parseRange("bytes=0-1,3-4", 10));
+        assertArrayEquals(new long[0], UploadFileHandler.parseRange("items=0-1", 10));
+        assertArrayEquals(new long[0], UploadFileHandler.parseRange("bytes=abc", 10));
+        assertArrayEquals(new long[0], UploadFileHandler.parseRange("bytes=a-b", 10));
+    }
+
+    @Test
+    void parseRangeRejectsUnsatisfiableRanges() {
+        assertNull(UploadFileHandler.parseRange("bytes=10-", 10));
+        assertNull(UploadFileHandler.parseRange("bytes=5-2", 10));
+        assertNull(UploadFileHandler.parseRange("bytes=-0", 10));
+        assertNull(UploadFileHandler.parseRange("bytes=-5", 0));
+    }
+
+    @Test
+    void fullFileIsServedWithImmutableCacheHeaders() throws Exception {
+        MockHttpServletResponse response = get(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void ifModifiedSinceNotBeforeLastModifiedReturns304() throws Exception {
+        String lastModified = get(request()).getHeader("Last-Modified");
+
+        MockHttpServletRequest request = request();
+        request.addHeader("If-Modified-Since", lastModified);
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ifModifiedSinceBeforeLastModifiedReturnsTheFile() throws Exception {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        MockHttpServletRequest request = request();
+        request.addHeader("If-Modified-Since", lastModified - 60_000);
+
+        assertEquals(200, get(request).getStatus());
+    }
+
+    @Test
+    void malformedIfModifiedSinceIsIgnored() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("If-Modified-Since", "not a date");
+
+        assertEquals(200, get(request).getStatus());
+    }
+
+    @Test
+    void rangeReturnsPartialContent() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=20-");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void staleIfRangeReturnsTheWholeFile() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void pathsOutsideTheUploadRootAreNotFound() throws Exception {
+        MockHttpServletRequest request = request();
+        request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "../pom.xml");
+
+        assertEquals(404, get(request).getStatus());
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + file.getFileName());
+        request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, file.getFileName().toString());
+        return request;
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.handleRequest(request, response);
+        return response;
+    }
+}
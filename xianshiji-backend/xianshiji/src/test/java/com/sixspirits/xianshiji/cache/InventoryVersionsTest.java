@@ -0,0 +1,76 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.mapper.InventoryVersionMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryVersionsTest {
+
+    private InventoryVersionMapper mapper;
+    private InventoryVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(InventoryVersionMapper.class);
+        versions = new InventoryVersions(mapper);
+    }
+
+    @Test
+    void etagIsStableAndServedFromMemoryWhileUnchanged() {
+        when(mapper.findVersion(InventoryVersions.USER, 1L)).thenReturn(3L);
+
+        String etag = versions.etag(InventoryVersions.USER, 1L);
+
+        assertEquals(etag, versions.etag(InventoryVersions.USER, 1L));
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        verify(mapper, times(1)).findVersion(InventoryVersions.USER, 1L);
+    }
+
+    @Test
+    void bumpChangesTheEtag() {
+        when(mapper.findVersion(InventoryVersions.USER, 1L)).thenReturn(3L, 4L);
+        String before = versions.etag(InventoryVersions.USER, 1L);
+
+        versions.bump(InventoryVersions.USER, 1L);
+
+        verify(mapper).increment(InventoryVersions.USER, 1L);
+        assertNotEquals(before, versions.etag(InventoryVersions.USER, 1L));
+    }
+
+    @Test
+    void globalBumpChangesEveryEtag() {
+        when(mapper.findVersion(InventoryVersions.USER, 1L)).thenReturn(3L);
+        when(mapper.findVersion("GLOBAL", 0L)).thenReturn(0L, 1L);
+        String before = versions.etag(InventoryVersions.USER, 1L);
+
+        versions.bumpGlobal();
+
+        assertNotEquals(before, versions.etag(InventoryVersions.USER, 1L));
+    }
+
+    @Test
+    void scopesAreVersionedSeparately() {
+        when(mapper.findVersion(InventoryVersions.USER, 1L)).thenReturn(1L);
+        when(mapper.findVersion(InventoryVersions.FAMILY, 1L)).thenReturn(2L);
+
+        assertNotEquals(versions.etag(InventoryVersions.USER, 1L), versions.etag(InventoryVersions.FAMILY, 1L));
+    }
+
+    @Test
+    void missingFamilyIsNotBumped() {
+        versions.bump(InventoryVersions.FAMILY, null);
+
+        verify(mapper, never()).increment(anyString(), anyLong());
+    }
+}
@@ -0,0 +1,100 @@
+package com.sixspirits.xianshiji.cache;
+
+import com.sixspirits.xianshiji.common.PageCursor;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.mapper.RecipeIngredientMapper;
+import com.sixspirits.xianshiji.mapper.RecipeMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipeCatalogTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private RecipeMapper recipeMapper;
+    private RecipeIngredientMapper recipeIngredientMapper;
+    private RecipeCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        recipeMapper = mock(RecipeMapper.class);
+        recipeIngredientMapper = mock(RecipeIngredientMapper.class);
+        when(recipeIngredientMapper.findAll()).thenReturn(List.of());
+        catalog = new RecipeCatalog(recipeMapper, recipeIngredientMapper, jsonMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void pagesFollowCatalogOrderWithoutGapsOrRepeats() {
+        // id 3 和 4 创建时间相同，按 id 倒序；id 1 没有创建时间，排在最后
+        when(recipeMapper.findAll()).thenReturn(List.of(
+                recipe(1L, null), recipe(2L, T0), recipe(3L, T0.plusHours(1)),
+                recipe(4L, T0.plusHours(1)), recipe(5L, T0.plusHours(2))));
+
+        List<Long> seen = new ArrayList<>();
+        PageCursor cursor = null;
+        int pages = 0;
+        do {
+            JsonNode body = read(catalog.getPageJson(cursor, 2));
+            for (JsonNode recipe : body.get("data")) {
+                seen.add(recipe.get("id").asLong());
+            }
+            JsonNode next = body.get("nextCursor");
+            cursor = next.isNull() ? null : PageCursor.decode(next.asString());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() {
+        when(recipeMapper.findAll()).thenReturn(List.of(recipe(1L, T0), recipe(2L, T0.plusHours(1))));
+
+        JsonNode body = read(catalog.getPageJson(null, 2));
+
+        assertEquals(2, body.get("data").size());
+        assertTrue(body.get("nextCursor").isNull());
+    }
+
+    @Test
+    void cursorPastTheEndReturnsAnEmptyPage() {
+        when(recipeMapper.findAll()).thenReturn(List.of(recipe(1L, T0)));
+
+        JsonNode body = read(catalog.getPageJson(new PageCursor(null, 0L), 10));
+
+        assertEquals(0, body.get("data").size());
+        assertTrue(body.get("nextCursor").isNull());
+    }
+
+    private JsonNode read(RecipeCatalog.CachedJson json) {
+        return jsonMapper.readTree(json.getBody());
+    }
+
+    private static Recipe recipe(Long id, LocalDateTime createdAt) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName("菜谱" + id);
+        recipe.setCreatedAt(createdAt);
+        recipe.setCuisineType("家常菜");
+        return recipe;
+    }
+}
@@ -0,0 +1,98 @@
+package com.sixspirits.xianshiji.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000);
+        PageCursor cursor = PageCursor.decode(new PageCursor(createdAt, 42L).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertEquals(42L, cursor.getId());
+    }
+
+    @Test
+    void cursorWithoutCreatedAtKeepsOnlyTheId() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(null, 7L).encode());
+
+        assertNull(cursor.getCreatedAt());
+        assertEquals(7L, cursor.getId());
+    }
+
+    @Test
+    void blankTokenStartsFromTheFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(" "));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("!!"));
+    }
+
+    @Test
+    void limitIsDefaultedAndCapped() {
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.normalizeLimit(0));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.normalizeLimit(-5));
+        assertEquals(1, PageCursor.normalizeLimit(1));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.normalizeLimit(PageCursor.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void pagedOnlyWhenCursorOrLimitGiven() {
+        assertFalse(PageCursor.isPaged(null, 0));
+        assertFalse(PageCursor.isPaged("", 0));
+        assertTrue(PageCursor.isPaged(null, 10));
+        assertTrue(PageCursor.isPaged("abc", 0));
+    }
+
+    @Test
+    void pageWithExactlyLimitRowsHasNoNextCursor() {
+        CursorPage<Row> page = CursorPage.of(rows(3), 3, Row::createdAt, Row::id);
+
+        assertEquals(3, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void extraRowIsDroppedAndCursorPointsAtTheLastItem() {
+        List<Row> rows = rows(4);
+        CursorPage<Row> page = CursorPage.of(rows, 3, Row::createdAt, Row::id);
+
+        assertEquals(rows.subList(0, 3), page.getItems());
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(rows.get(2).createdAt(), next.getCreatedAt());
+        assertEquals(rows.get(2).id(), next.getId());
+    }
+
+    @Test
+    void emptyPageHasNoNextCursor() {
+        CursorPage<Row> page = CursorPage.of(List.of(), 3, Row::createdAt, Row::id);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    private static List<Row> rows(int count) {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(i -> new Row(base.minusMinutes(i), 100 - i))
+                .toList();
+    }
+
+    private record Row(LocalDateTime createdAt, Long id) {
+    }
+}
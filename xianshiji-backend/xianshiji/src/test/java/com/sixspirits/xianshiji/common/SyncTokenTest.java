@@ -0,0 +1,30 @@
+package com.sixspirits.xianshiji.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SyncTokenTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LocalDateTime since = LocalDateTime.of(2024, 6, 30, 23, 59, 59, 999_000_000);
+
+        assertEquals(since, SyncToken.decode(SyncToken.encode(since)));
+    }
+
+    @Test
+    void blankTokenMeansFullSync() {
+        assertNull(SyncToken.decode(null));
+        assertNull(SyncToken.decode(""));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SyncToken.decode("garbage"));
+    }
+}
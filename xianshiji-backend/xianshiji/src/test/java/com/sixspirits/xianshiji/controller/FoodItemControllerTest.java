@@ -0,0 +1,65 @@
+package com.sixspirits.xianshiji.controller;
+
+import com.sixspirits.xianshiji.alert.AlertStreamRegistry;
+import com.sixspirits.xianshiji.security.AuthTokens;
+import com.sixspirits.xianshiji.service.FoodItemService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FoodItemControllerTest {
+
+    private static final String ETAG = "\"inv-3-0-20000\"";
+
+    private FoodItemService foodItemService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        foodItemService = mock(FoodItemService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new FoodItemController(foodItemService,
+                mock(AlertStreamRegistry.class), mock(AuthTokens.class))).build();
+        when(foodItemService.getUserInventoryEtag(1L)).thenReturn(ETAG);
+        when(foodItemService.getUserFoodItems(1L)).thenReturn(List.of());
+    }
+
+    @Test
+    void listCarriesTheInventoryEtag() throws Exception {
+        mockMvc.perform(get("/food-items/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(jsonPath("$.success").value(true));
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutLoadingItems() throws Exception {
+        mockMvc.perform(get("/food-items/user/1").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(foodItemService, never()).getUserFoodItems(any());
+    }
+
+    @Test
+    void staleIfNoneMatchReturnsTheList() throws Exception {
+        mockMvc.perform(get("/food-items/user/1").header("If-None-Match", "\"inv-2-0-20000\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG));
+
+        verify(foodItemService).getUserFoodItems(1L);
+    }
+}
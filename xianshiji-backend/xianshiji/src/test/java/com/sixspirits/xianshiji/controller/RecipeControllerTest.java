@@ -0,0 +1,115 @@
+package com.sixspirits.xianshiji.controller;
+
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.common.VersionConflictException;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.mapper.RecipeIngredientMapper;
+import com.sixspirits.xianshiji.mapper.RecipeMapper;
+import com.sixspirits.xianshiji.security.AuthPrincipal;
+import com.sixspirits.xianshiji.service.RecipeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RecipeControllerTest {
+
+    private RecipeCatalog catalog;
+    private RecipeService recipeService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        RecipeMapper recipeMapper = mock(RecipeMapper.class);
+        RecipeIngredientMapper recipeIngredientMapper = mock(RecipeIngredientMapper.class);
+        Recipe recipe = new Recipe();
+        recipe.setId(1L);
+        recipe.setName("番茄炒蛋");
+        recipe.setCreatedAt(LocalDateTime.of(2024, 5, 1, 8, 0));
+        when(recipeMapper.findAll()).thenReturn(List.of(recipe));
+        when(recipeIngredientMapper.findAll()).thenReturn(List.of());
+        catalog = new RecipeCatalog(recipeMapper, recipeIngredientMapper, JsonMapper.builder().build());
+
+        recipeService = mock(RecipeService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new RecipeController(recipeService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void listIsServedWithItsEtag() throws Exception {
+        RecipeCatalog.CachedJson json = catalog.getAllJson();
+        when(recipeService.getAllRecipesJson()).thenReturn(json);
+
+        mockMvc.perform(get("/recipes"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", json.getEtag()))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.data[0].name").value("番茄炒蛋"));
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304() throws Exception {
+        RecipeCatalog.CachedJson json = catalog.getAllJson();
+        when(recipeService.getAllRecipesJson()).thenReturn(json);
+
+        mockMvc.perform(get("/recipes").header("If-None-Match", json.getEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void patchVersionConflictReturns409() throws Exception {
+        when(recipeService.patchRecipe(eq(1L), eq(7L), any()))
+                .thenThrow(new VersionConflictException("菜谱已被修改，请刷新后重试"));
+
+        mockMvc.perform(patch("/recipes/1")
+                        .requestAttr(AuthPrincipal.REQUEST_ATTRIBUTE, new AuthPrincipal(7L, List.of()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"红烧肉\",\"version\":1}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void patchWithoutTokenIsUnauthorized() throws Exception {
+        mockMvc.perform(patch("/recipes/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"红烧肉\"}"))
+                .andExpect(status().isUnauthorized());
+
+        verify(recipeService, never()).patchRecipe(any(), any(), any());
+    }
+
+    @Test
+    void staleIfNoneMatchReturnsTheBody() throws Exception {
+        RecipeCatalog.CachedJson json = catalog.getByIdJson(1L);
+        when(recipeService.getRecipeByIdJson(1L)).thenReturn(json);
+
+        mockMvc.perform(get("/recipes/1").header("If-None-Match", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(1));
+    }
+}
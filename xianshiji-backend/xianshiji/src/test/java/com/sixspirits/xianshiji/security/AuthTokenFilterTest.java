@@ -0,0 +1,95 @@
+package com.sixspirits.xianshiji.security;
+
+import com.sixspirits.xianshiji.cache.FamilyMemberships;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthTokenFilterTest {
+
+    private AuthTokens authTokens;
+    private AuthTokenFilter filter;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final MockFilterChain chain = new MockFilterChain();
+
+    @BeforeEach
+    void setUp() {
+        authTokens = new AuthTokens("test-secret", true);
+        FamilyMemberships familyMemberships = mock(FamilyMemberships.class);
+        when(familyMemberships.getFamilies(any())).thenReturn(List.of());
+        filter = new AuthTokenFilter(new PrincipalCache(authTokens, familyMemberships));
+    }
+
+    @Test
+    void validBearerTokenSetsThePrincipal() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-items/user/7");
+        request.addHeader("Authorization", "Bearer " + authTokens.issue(7L));
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(7L, principal(request).getUserId());
+        assertEquals(request, chain.getRequest());
+    }
+
+    @Test
+    void invalidBearerTokenIsUnauthorized() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-items/user/7");
+        request.addHeader("Authorization", "Bearer 7.0.bad");
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void requestWithoutTokenPassesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/recipes");
+
+        filter.doFilter(request, response, chain);
+
+        assertNull(principal(request));
+        assertEquals(request, chain.getRequest());
+    }
+
+    @Test
+    void streamTokenIsAcceptedOnlyOnTheAlertStream() throws Exception {
+        String streamToken = authTokens.issueStreamToken(7L);
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", "/food-items/user/7/alerts/stream");
+        stream.addParameter("access_token", streamToken);
+
+        filter.doFilter(stream, response, chain);
+        assertEquals(7L, principal(stream).getUserId());
+
+        // 其他接口忽略查询参数里的令牌
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/food-items/user/7");
+        other.addParameter("access_token", streamToken);
+        MockFilterChain otherChain = new MockFilterChain();
+        filter.doFilter(other, new MockHttpServletResponse(), otherChain);
+        assertNull(principal(other));
+    }
+
+    @Test
+    void loginTokenInTheQueryIsRejected() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-items/user/7/alerts/stream");
+        request.addParameter("access_token", authTokens.issue(7L));
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(401, response.getStatus());
+    }
+
+    private static AuthPrincipal principal(MockHttpServletRequest request) {
+        return (AuthPrincipal) request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
+    }
+}
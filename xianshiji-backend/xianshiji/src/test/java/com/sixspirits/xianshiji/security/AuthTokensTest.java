@@ -0,0 +1,96 @@
+package com.sixspirits.xianshiji.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthTokensTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret";
+
+    private final AuthTokens authTokens = new AuthTokens(SECRET, true);
+
+    @Test
+    void issuedTokenVerifiesToItsUser() {
+        String token = authTokens.issue(42L);
+
+        assertEquals(42L, authTokens.verify(token));
+        AuthTokens.Claims claims = authTokens.parse(token);
+        long sevenDays = 7L * 24 * 60 * 60 * 1000;
+        assertTrue(Math.abs(claims.getExpiresAtMillis() - System.currentTimeMillis() - sevenDays) < 5_000);
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        String token = authTokens.issue(42L);
+
+        assertNull(authTokens.verify("43" + token.substring(2)));
+        assertNull(authTokens.verify(token.substring(0, token.length() - 1) + "x"));
+        assertNull(authTokens.verify(token + "."));
+        assertNull(authTokens.verify("42"));
+        assertNull(authTokens.verify(""));
+        assertNull(authTokens.verify(null));
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        String token = new AuthTokens("another-secret", true).issue(42L);
+
+        assertNull(authTokens.verify(token));
+    }
+
+    @Test
+    void expiredTokenIsRejected() throws Exception {
+        long expiredAt = System.currentTimeMillis() / 1000 - 1;
+        String payload = "42." + expiredAt;
+
+        assertNull(authTokens.verify(payload + "." + sign(payload)));
+        // 同样的签名方式、未过期时可以通过，说明上面是因为过期被拒
+        String valid = "42." + (expiredAt + 3600);
+        assertEquals(42L, authTokens.verify(valid + "." + sign(valid)));
+    }
+
+    @Test
+    void streamAndLoginTokensAreNotInterchangeable() {
+        String streamToken = authTokens.issueStreamToken(42L);
+        String loginToken = authTokens.issue(42L);
+
+        assertEquals(42L, authTokens.verifyStreamToken(streamToken));
+        assertNull(authTokens.verify(streamToken));
+        assertNull(authTokens.verifyStreamToken(loginToken));
+    }
+
+    @Test
+    void streamTokenIsShortLived() {
+        AuthTokens.Claims claims = authTokens.parse(authTokens.issue(1L));
+        String streamToken = authTokens.issueStreamToken(1L);
+        long expiresAt = Long.parseLong(streamToken.split("\\.")[1]) * 1000;
+
+        assertTrue(expiresAt - System.currentTimeMillis() <= 60_000);
+        assertTrue(claims.getExpiresAtMillis() > expiresAt);
+    }
+
+    @Test
+    void requiredTokensNeedAConfiguredSecret() {
+        assertThrows(IllegalStateException.class, () -> new AuthTokens("", true));
+        assertThrows(IllegalStateException.class, () -> new AuthTokens(null, true));
+        // 不要求令牌时使用随机密钥
+        AuthTokens random = new AuthTokens("", false);
+        assertEquals(1L, random.verify(random.issue(1L)));
+    }
+
+    private static String sign(String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
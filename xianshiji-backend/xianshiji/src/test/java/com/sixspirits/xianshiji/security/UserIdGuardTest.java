@@ -0,0 +1,98 @@
+package com.sixspirits.xianshiji.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserIdGuardTest {
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void ownPathUserIdIsAllowed() throws Exception {
+        MockHttpServletRequest request = request(1L, "1");
+
+        assertTrue(new UserIdGuard(true).preHandle(request, response, null));
+    }
+
+    @Test
+    void otherUsersPathUserIdIsForbidden() throws Exception {
+        MockHttpServletRequest request = request(1L, "2");
+
+        assertFalse(new UserIdGuard(false).preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void otherUsersQueryUserIdIsForbidden() throws Exception {
+        MockHttpServletRequest request = request(1L, null);
+        request.addParameter("userId", "2");
+
+        assertFalse(new UserIdGuard(false).preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void requestWithoutTokenDependsOnRequireToken() throws Exception {
+        assertTrue(new UserIdGuard(false).preHandle(request(null, "2"), response, null));
+
+        assertFalse(new UserIdGuard(true).preHandle(request(null, "2"), response, null));
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void requestWithoutUserIdIsNotChecked() throws Exception {
+        assertTrue(new UserIdGuard(true).preHandle(request(null, null), response, null));
+    }
+
+    @Test
+    void bodyUserIdIsCheckedAgainstTheToken() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request(1L, null)));
+        UserIdGuard guard = new UserIdGuard(false);
+
+        assertDoesNotThrow(() -> guard.check(1L));
+        assertDoesNotThrow(() -> guard.check(" 1 "));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> guard.check(2L));
+        assertEquals(HttpStatus.FORBIDDEN, e.getStatusCode());
+    }
+
+    @Test
+    void bodyUserIdWithoutTokenIsUnauthorizedWhenRequired() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request(null, null)));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> new UserIdGuard(true).check(2L));
+        assertEquals(HttpStatus.UNAUTHORIZED, e.getStatusCode());
+        assertDoesNotThrow(() -> new UserIdGuard(false).check(2L));
+    }
+
+    private static MockHttpServletRequest request(Long principalUserId, String pathUserId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (principalUserId != null) {
+            request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, new AuthPrincipal(principalUserId, List.of()));
+        }
+        if (pathUserId != null) {
+            request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("userId", pathUserId));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,348 @@
+package com.sixspirits.xianshiji.service;
+
+import com.sixspirits.xianshiji.cache.InventoryVersions;
+import com.sixspirits.xianshiji.common.SyncToken;
+import com.sixspirits.xianshiji.common.VersionConflictException;
+import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.entity.FoodItemChanges;
+import com.sixspirits.xianshiji.event.FoodStatusChangedEvent;
+import com.sixspirits.xianshiji.mapper.FoodItemMapper;
+import com.sixspirits.xianshiji.mapper.FoodStatsMapper;
+import com.sixspirits.xianshiji.search.FoodSearchIndex;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FoodItemServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long ITEM_ID = 5L;
+
+    private FoodItemMapper foodItemMapper;
+    private FoodStatsMapper foodStatsMapper;
+    private FoodSearchIndex foodSearchIndex;
+    private InventoryVersions inventoryVersions;
+    private FamilyService familyService;
+    private ApplicationEventPublisher eventPublisher;
+    private FoodItemService service;
+
+    @BeforeEach
+    void setUp() {
+        foodItemMapper = mock(FoodItemMapper.class);
+        foodStatsMapper = mock(FoodStatsMapper.class);
+        foodSearchIndex = mock(FoodSearchIndex.class);
+        inventoryVersions = mock(InventoryVersions.class);
+        familyService = mock(FamilyService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new FoodItemService(foodItemMapper, foodStatsMapper, foodSearchIndex, inventoryVersions,
+                familyService, eventPublisher, JsonMapper.builder().build(),
+                mock(SqlSessionFactory.class, RETURNS_DEEP_STUBS));
+        when(familyService.getUserFamilies(USER_ID)).thenReturn(List.of());
+    }
+
+    @Test
+    void consumeCountsStatsFromTheStoredStatus() {
+        // 库里仍是 NORMAL（定时任务尚未跑到），消耗后读回的是 NEAR_EXPIRY
+        FoodItem before = item("NORMAL", "3", LocalDate.now().plusDays(2));
+        FoodItem after = item("NEAR_EXPIRY", "2", LocalDate.now().plusDays(2));
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(before);
+        when(foodItemMapper.applyQuantityDelta(eq(ITEM_ID), eq(USER_ID), any(), any(), any(), any()))
+                .thenReturn(1);
+        when(foodItemMapper.findByIdIncludingDeleted(ITEM_ID)).thenReturn(after);
+
+        FoodItem result = service.consume(ITEM_ID, BigDecimal.ONE, USER_ID);
+
+        assertEquals("NEAR_EXPIRY", result.getStatus());
+        verify(foodStatsMapper).applyDelta("USER", USER_ID, "蔬菜", 0, 1, 0, 0);
+        ArgumentCaptor<FoodStatusChangedEvent> event = ArgumentCaptor.forClass(FoodStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("NORMAL", event.getValue().getOldStatus());
+        assertEquals("NEAR_EXPIRY", event.getValue().getNewStatus());
+    }
+
+    @Test
+    void consumeToZeroRemovesTheStoredStatus() {
+        FoodItem before = item("EXPIRED", "1", LocalDate.now().minusDays(1));
+        FoodItem after = item("EXPIRED", "0", LocalDate.now().minusDays(1));
+        after.setIsDeleted(1);
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(before);
+        when(foodItemMapper.applyQuantityDelta(eq(ITEM_ID), eq(USER_ID), any(), any(), any(), any()))
+                .thenReturn(1);
+        when(foodItemMapper.findByIdIncludingDeleted(ITEM_ID)).thenReturn(after);
+
+        service.consume(ITEM_ID, BigDecimal.ONE, USER_ID);
+
+        verify(foodStatsMapper).applyDelta("USER", USER_ID, "蔬菜", -1, 0, -1, 0);
+        verify(foodSearchIndex).remove(USER_ID, ITEM_ID);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void consumeMoreThanStockChangesNothing() {
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(item("NORMAL", "1", null));
+        when(foodItemMapper.applyQuantityDelta(eq(ITEM_ID), eq(USER_ID), any(), any(), any(), any()))
+                .thenReturn(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.consume(ITEM_ID, BigDecimal.TEN, USER_ID));
+
+        assertTrue(e.getMessage().startsWith("库存不足"));
+        verify(foodStatsMapper, never()).applyDelta(anyString(), anyLong(), anyString(),
+                anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void restockRejectsItemsOfOtherUsers() {
+        FoodItem other = item("NORMAL", "1", null);
+        other.setUserId(2L);
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(other);
+
+        assertThrows(RuntimeException.class, () -> service.restock(ITEM_ID, BigDecimal.ONE, USER_ID));
+        verify(foodItemMapper, never()).applyQuantityDelta(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void addFoodItemsReportsEachItemInRequestOrder() {
+        when(familyService.isMember(USER_ID, 9L)).thenReturn(false);
+        doAnswer(invocation -> {
+            List<FoodItem> items = invocation.getArgument(0);
+            long id = 100;
+            for (FoodItem item : items) {
+                item.setId(id++);
+            }
+            return items.size();
+        }).when(foodItemMapper).insertBatch(any());
+        FoodItem noName = newItem(null, null);
+        FoodItem otherFamily = newItem("牛奶", 9L);
+
+        List<Map<String, Object>> results = service.addFoodItems(USER_ID,
+                List.of(newItem("鸡蛋", null), noName, otherFamily, newItem("苹果", null)));
+
+        assertResult(results.get(0), 0, 100L, true);
+        assertResult(results.get(1), 1, null, false);
+        assertEquals("食材名称不能为空", results.get(1).get("message"));
+        assertResult(results.get(2), 2, null, false);
+        assertEquals("不是该家庭组的成员", results.get(2).get("message"));
+        assertResult(results.get(3), 3, 101L, true);
+        ArgumentCaptor<List<FoodItem>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(foodItemMapper).insertBatch(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+    }
+
+    @Test
+    void addFoodItemsWithNoValidItemWritesNothing() {
+        List<Map<String, Object>> results = service.addFoodItems(USER_ID, List.of(newItem(" ", null)));
+
+        assertResult(results.get(0), 0, null, false);
+        verify(foodItemMapper, never()).insertBatch(any());
+    }
+
+    @Test
+    void batchSizeIsChecked() {
+        assertThrows(RuntimeException.class, () -> service.addFoodItems(USER_ID, List.of()));
+        List<Long> tooMany = LongStream.rangeClosed(1, FoodItemService.MAX_BATCH_SIZE + 1).boxed().toList();
+        assertThrows(RuntimeException.class, () -> service.deleteFoodItems(USER_ID, tooMany));
+    }
+
+    @Test
+    void deleteFoodItemsSkipsMissingForeignAndRepeatedIds() {
+        // 6 不属于该用户，锁定查询不会返回它
+        FoodItem owned = item("NORMAL", "1", null);
+        when(foodItemMapper.findByIdsForUpdate(eq(USER_ID), any())).thenReturn(List.of(owned));
+
+        List<Map<String, Object>> results = service.deleteFoodItems(USER_ID, List.of(ITEM_ID, 6L, ITEM_ID));
+
+        assertResult(results.get(0), 0, ITEM_ID, true);
+        assertResult(results.get(1), 1, 6L, false);
+        assertResult(results.get(2), 2, ITEM_ID, false);
+        verify(foodItemMapper).softDeleteByIds(List.of(ITEM_ID));
+        verify(foodStatsMapper).applyDelta("USER", USER_ID, "蔬菜", -1, 0, 0, 0);
+        verify(foodSearchIndex).remove(USER_ID, ITEM_ID);
+    }
+
+    @Test
+    void deleteFoodItemsWithNothingOwnedWritesNothing() {
+        when(foodItemMapper.findByIdsForUpdate(eq(USER_ID), any())).thenReturn(List.of());
+
+        List<Map<String, Object>> results = service.deleteFoodItems(USER_ID, List.of(6L));
+
+        assertResult(results.get(0), 0, 6L, false);
+        verify(foodItemMapper, never()).softDeleteByIds(any());
+    }
+
+    @Test
+    void syncWithoutTokenReturnsFullListAndWindowedToken() {
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        when(foodItemMapper.selectNow()).thenReturn(now);
+        when(foodItemMapper.findByUserId(USER_ID)).thenReturn(List.of(item("NORMAL", "1", null)));
+
+        FoodItemChanges changes = service.getUserFoodItemChanges(USER_ID, null);
+
+        assertTrue(changes.isFull());
+        assertEquals(1, changes.getItems().size());
+        // 令牌比数据库时间提前一个窗口，窗口内提交的变更下次仍能取到
+        assertTrue(SyncToken.decode(changes.getSyncToken()).isBefore(now));
+        verify(foodItemMapper, never()).findChangedSince(any(), any(), anyInt());
+    }
+
+    @Test
+    void syncWithTokenSplitsChangedAndDeletedItems() {
+        LocalDateTime since = LocalDateTime.of(2024, 6, 1, 11, 0);
+        when(foodItemMapper.selectNow()).thenReturn(since.plusHours(1));
+        FoodItem changed = item("NORMAL", "2", null);
+        FoodItem deleted = item("NORMAL", "1", null);
+        deleted.setId(6L);
+        deleted.setIsDeleted(1);
+        when(foodItemMapper.findChangedSince(eq(USER_ID), eq(since), anyInt())).thenReturn(List.of(changed, deleted));
+
+        FoodItemChanges changes = service.getUserFoodItemChanges(USER_ID, SyncToken.encode(since));
+
+        assertFalse(changes.isFull());
+        assertEquals(List.of(changed), changes.getItems());
+        assertEquals(List.of(6L), changes.getDeletedIds());
+        verify(foodItemMapper, never()).findByUserId(any());
+    }
+
+    @Test
+    void syncWithTooManyChangesFallsBackToFullList() {
+        LocalDateTime since = LocalDateTime.of(2024, 6, 1, 11, 0);
+        when(foodItemMapper.selectNow()).thenReturn(since.plusHours(1));
+        // 按查询的上限返回，即比允许的变更条数多一条
+        when(foodItemMapper.findChangedSince(eq(USER_ID), eq(since), anyInt()))
+                .thenAnswer(invocation -> Collections.nCopies(invocation.<Integer>getArgument(2),
+                        item("NORMAL", "1", null)));
+        when(foodItemMapper.findByUserId(USER_ID)).thenReturn(List.of());
+
+        FoodItemChanges changes = service.getUserFoodItemChanges(USER_ID, SyncToken.encode(since));
+
+        assertTrue(changes.isFull());
+        assertTrue(changes.getDeletedIds().isEmpty());
+        verify(foodItemMapper).findByUserId(USER_ID);
+    }
+
+    @Test
+    void syncTokenNeverMovesBackwards() {
+        // 数据库时钟回拨到令牌之前
+        LocalDateTime since = LocalDateTime.of(2024, 6, 1, 12, 0);
+        when(foodItemMapper.selectNow()).thenReturn(since.minusMinutes(10));
+        when(foodItemMapper.findChangedSince(eq(USER_ID), eq(since), anyInt())).thenReturn(List.of());
+
+        FoodItemChanges changes = service.getUserFoodItemChanges(USER_ID, SyncToken.encode(since));
+
+        assertEquals(since, SyncToken.decode(changes.getSyncToken()));
+    }
+
+    @Test
+    void patchWithStaleVersionIsAConflict() {
+        when(foodItemMapper.patchById(any(), eq(USER_ID), eq(Set.of("name")), eq(2))).thenReturn(0);
+        when(foodItemMapper.findById(ITEM_ID)).thenReturn(item("NORMAL", "1", null));
+
+        assertThrows(VersionConflictException.class,
+                () -> service.patchFoodItem(ITEM_ID, USER_ID, Map.of("name", "菠菜", "version", 2)));
+    }
+
+    @Test
+    void patchOfAnotherUsersItemIsNotReportedAsAConflict() {
+        FoodItem other = item("NORMAL", "1", null);
+        other.setUserId(2L);
+        when(foodItemMapper.patchById(any(), eq(USER_ID), any(), any())).thenReturn(0);
+        when(foodItemMapper.findById(ITEM_ID)).thenReturn(other);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.patchFoodItem(ITEM_ID, USER_ID, Map.of("name", "菠菜", "version", 0)));
+
+        assertFalse(e instanceof VersionConflictException);
+    }
+
+    @Test
+    void statusPatchChecksTheClientVersionAgainstTheLockedRow() {
+        FoodItem locked = item("NORMAL", "3", null);
+        locked.setVersion(3);
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(locked);
+        when(foodItemMapper.patchById(any(), eq(USER_ID), any(), eq(2))).thenReturn(0);
+
+        assertThrows(VersionConflictException.class,
+                () -> service.patchFoodItem(ITEM_ID, USER_ID, Map.of("quantity", 1, "version", 2)));
+        verify(foodStatsMapper, never()).applyDelta(anyString(), anyLong(), anyString(),
+                anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void statusPatchWithoutVersionUsesTheLockedVersion() {
+        FoodItem locked = item("NORMAL", "3", null);
+        locked.setVersion(3);
+        when(foodItemMapper.findByIdForUpdate(ITEM_ID)).thenReturn(locked);
+        when(foodItemMapper.patchById(any(), eq(USER_ID), any(), eq(3))).thenReturn(1);
+
+        FoodItem result = service.patchFoodItem(ITEM_ID, USER_ID, Map.of("category", "水果"));
+
+        assertEquals(4, result.getVersion());
+        verify(foodStatsMapper).applyDelta("USER", USER_ID, "蔬菜", -1, 0, 0, 0);
+        verify(foodStatsMapper).applyDelta("USER", USER_ID, "水果", 1, 0, 0, 0);
+    }
+
+    @Test
+    void patchWithoutPatchableFieldsIsRejected() {
+        assertThrows(RuntimeException.class,
+                () -> service.patchFoodItem(ITEM_ID, USER_ID, Map.of("userId", 2, "version", 0)));
+        verify(foodItemMapper, never()).patchById(any(), any(), any(), any());
+    }
+
+    private static void assertResult(Map<String, Object> result, int index, Long id, boolean success) {
+        assertEquals(index, result.get("index"));
+        assertEquals(id, result.get("id"));
+        assertEquals(success, result.get("success"));
+    }
+
+    private static FoodItem newItem(String name, Long familyId) {
+        FoodItem item = new FoodItem();
+        item.setName(name);
+        item.setFamilyId(familyId);
+        item.setCategory("蔬菜");
+        item.setQuantity(BigDecimal.ONE);
+        item.setExpiryDate(LocalDate.now().plusDays(10));
+        return item;
+    }
+
+    private static FoodItem item(String status, String quantity, LocalDate expiryDate) {
+        FoodItem item = new FoodItem();
+        item.setId(ITEM_ID);
+        item.setUserId(USER_ID);
+        item.setName("青菜");
+        item.setCategory("蔬菜");
+        item.setQuantity(new BigDecimal(quantity));
+        item.setExpiryDate(expiryDate);
+        item.setStatus(status);
+        item.setIsDeleted(0);
+        item.setVersion(0);
+        return item;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sixspirits.xianshiji.service;
+
+import com.sixspirits.xianshiji.entity.FoodItem;
+import com.sixspirits.xianshiji.mapper.FoodStatsMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class FoodStatsDeltaTest {
+
+    private final FoodStatsMapper mapper = mock(FoodStatsMapper.class);
+
+    @Test
+    void addCountsItemAndStatusForUserAndFamily() {
+        new FoodStatsDelta().add(item(1L, 10L, "蔬菜", "NEAR_EXPIRY")).flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "蔬菜", 1, 1, 0, 0);
+        verify(mapper).applyDelta("FAMILY", 10L, "蔬菜", 1, 1, 0, 0);
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    void removeWithoutFamilyOnlyTouchesUserScope() {
+        new FoodStatsDelta().remove(item(1L, null, "肉类", "EXPIRED")).flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "肉类", -1, 0, -1, 0);
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    void statusChangeWithinCategoryMovesOnlyTheStatusCounters() {
+        new FoodStatsDelta()
+                .remove(item(1L, null, "水果", "NORMAL"))
+                .add(item(1L, null, "水果", "INSUFFICIENT"))
+                .flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "水果", 0, 0, 0, 1);
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    void categoryChangeMovesTheItemBetweenGroups() {
+        new FoodStatsDelta()
+                .remove(item(1L, null, "水果", "NEAR_EXPIRY"))
+                .add(item(1L, null, "蔬菜", "NEAR_EXPIRY"))
+                .flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "水果", -1, -1, 0, 0);
+        verify(mapper).applyDelta("USER", 1L, "蔬菜", 1, 1, 0, 0);
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    void cancellingChangesWriteNothing() {
+        FoodItem item = item(1L, 10L, "蔬菜", "EXPIRED");
+        new FoodStatsDelta().remove(item).add(item).flush(mapper);
+
+        verifyNoInteractions(mapper);
+    }
+
+    @Test
+    void missingCategoryIsGroupedAsEmpty() {
+        new FoodStatsDelta().add(item(1L, null, null, "NORMAL")).flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "", 1, 0, 0, 0);
+    }
+
+    @Test
+    void flushClearsTheAccumulatedDelta() {
+        FoodStatsDelta delta = new FoodStatsDelta().add(item(1L, null, "蔬菜", "NORMAL"));
+        delta.flush(mapper);
+        delta.flush(mapper);
+
+        verify(mapper).applyDelta("USER", 1L, "蔬菜", 1, 0, 0, 0);
+        verifyNoMoreInteractions(mapper);
+    }
+
+    private static FoodItem item(Long userId, Long familyId, String category, String status) {
+        FoodItem item = new FoodItem();
+        item.setUserId(userId);
+        item.setFamilyId(familyId);
+        item.setCategory(category);
+        item.setStatus(status);
+        return item;
+    }
+}
@@ -0,0 +1,98 @@
+package com.sixspirits.xianshiji.service;
+
+import com.sixspirits.xianshiji.cache.RecipeCatalog;
+import com.sixspirits.xianshiji.common.VersionConflictException;
+import com.sixspirits.xianshiji.entity.Recipe;
+import com.sixspirits.xianshiji.event.RecipeChangedEvent;
+import com.sixspirits.xianshiji.mapper.RecipeIngredientMapper;
+import com.sixspirits.xianshiji.mapper.RecipeMapper;
+import com.sixspirits.xianshiji.search.IngredientMatcher;
+import com.sixspirits.xianshiji.search.RecipeSearchEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecipeServiceTest {
+
+    private static final Long RECIPE_ID = 3L;
+    private static final Long CREATOR_ID = 1L;
+
+    private RecipeMapper recipeMapper;
+    private ApplicationEventPublisher eventPublisher;
+    private RecipeService service;
+
+    @BeforeEach
+    void setUp() {
+        recipeMapper = mock(RecipeMapper.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new RecipeService(recipeMapper, mock(RecipeIngredientMapper.class), mock(RecipeCatalog.class),
+                mock(RecipeSearchEngine.class), mock(IngredientMatcher.class), mock(FoodItemService.class),
+                eventPublisher, JsonMapper.builder().build());
+    }
+
+    @Test
+    void patchWritesOnlyTheGivenFieldsAndRefreshesTheCatalog() {
+        when(recipeMapper.patchById(any(), eq(Set.of("name")), eq(4), eq(CREATOR_ID))).thenReturn(1);
+        when(recipeMapper.findById(RECIPE_ID)).thenReturn(recipe(CREATOR_ID));
+
+        service.patchRecipe(RECIPE_ID, CREATOR_ID, Map.of("name", "红烧肉", "version", 4));
+
+        verify(eventPublisher).publishEvent(any(RecipeChangedEvent.class));
+    }
+
+    @Test
+    void patchWithStaleVersionIsAConflict() {
+        when(recipeMapper.patchById(any(), any(), eq(4), eq(CREATOR_ID))).thenReturn(0);
+        when(recipeMapper.findById(RECIPE_ID)).thenReturn(recipe(CREATOR_ID));
+
+        assertThrows(VersionConflictException.class,
+                () -> service.patchRecipe(RECIPE_ID, CREATOR_ID, Map.of("name", "红烧肉", "version", 4)));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void patchByAnotherUserIsRejectedWithoutRevealingAConflict() {
+        when(recipeMapper.patchById(any(), any(), any(), eq(2L))).thenReturn(0);
+        when(recipeMapper.findById(RECIPE_ID)).thenReturn(recipe(CREATOR_ID));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.patchRecipe(RECIPE_ID, 2L, Map.of("name", "红烧肉", "version", 4)));
+
+        assertFalse(e instanceof VersionConflictException);
+        assertEquals("菜谱不存在或无权修改", e.getMessage());
+    }
+
+    @Test
+    void builtInRecipesCannotBePatched() {
+        when(recipeMapper.patchById(any(), any(), any(), eq(CREATOR_ID))).thenReturn(0);
+        when(recipeMapper.findById(RECIPE_ID)).thenReturn(recipe(null));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.patchRecipe(RECIPE_ID, CREATOR_ID, Map.of("name", "红烧肉")));
+
+        assertFalse(e instanceof VersionConflictException);
+    }
+
+    private static Recipe recipe(Long createdBy) {
+        Recipe recipe = new Recipe();
+        recipe.setId(RECIPE_ID);
+        recipe.setName("红烧肉");
+        recipe.setCreatedBy(createdBy);
+        recipe.setVersion(5);
+        return recipe;
+    }
+}
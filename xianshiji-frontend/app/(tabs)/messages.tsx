@@ -1,11 +1,12 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { View, Text, StyleSheet, FlatList, Image, TouchableOpacity, RefreshControl } from 'react-native';
 import { LinearGradient } from 'expo-linear-gradient';
 import { useRouter } from 'expo-router';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
+import { useAlertStream } from '@/hooks/use-alert-stream';
 import { Feather } from '@expo/vector-icons';
 
 interface FoodItem {
@@ -43,23 +44,32 @@ export default function MessagesScreen() {
 
     const loadWarningMessages = async (userId: number) => {
         try {
-            const url = apiUrl(`/food-items/user/${userId}`);
-            const response = await fetch(url);
+            // 服务端已按类型分组并排序，只返回需要提醒的食材
+            const response = await apiFetch(`/food-items/user/${userId}/alerts`);
             const data = await response.json();
             if (data.success) {
-                const allItems = data.data;
-                const warning = allItems.filter((item: FoodItem) => item.status === 'NEAR_EXPIRY');
-                const expired = allItems.filter((item: FoodItem) => item.status === 'EXPIRED');
-                const insufficient = allItems.filter((item: FoodItem) => item.status === 'INSUFFICIENT');
-                setWarningItems(warning);
-                setExpiredItems(expired);
-                setInsufficientItems(insufficient);
+                setWarningItems(data.data.nearExpiry);
+                setExpiredItems(data.data.expired);
+                setInsufficientItems(data.data.insufficient);
             }
         } catch (error) {
             console.error('加载警告消息失败:', error);
         }
     };
 
+    // 状态变化推送到达时重新加载列表；过期巡检会一次推送很多条，合并成一次请求
+    const reloadTimer = useRef<ReturnType<typeof setTimeout> | null>(null);
+    useAlertStream(user?.id, () => {
+        if (reloadTimer.current) return;
+        reloadTimer.current = setTimeout(() => {
+            reloadTimer.current = null;
+            loadWarningMessages(user.id);
+        }, 500);
+    });
+    useEffect(() => () => {
+        if (reloadTimer.current) clearTimeout(reloadTimer.current);
+    }, []);
+
     const handleRefresh = async () => {
         if (!user) return;
         
@@ -6,7 +6,7 @@ import { useRouter } from 'expo-router';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiUrl, clearSession } from '@/constants/api';
 
 export default function ProfileScreen() {
     const [user, setUser] = useState<any>(null);
@@ -28,7 +28,7 @@ export default function ProfileScreen() {
             {
                 text: '确定',
                 onPress: async () => {
-                    await AsyncStorage.removeItem('user');
+                    await clearSession();
                     router.replace('/login');
                 }
             }
@@ -5,7 +5,7 @@ import { Feather } from '@expo/vector-icons';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 
 interface FoodItem {
     id: number;
@@ -69,8 +69,7 @@ export default function StatisticsScreen() {
     const loadFoodItems = async (userId: number) => {
         try {
             // 始终获取所有食材，然后在前端进行联合筛选
-            const url = apiUrl(`/food-items/user/${userId}`);
-            const response = await fetch(url);
+            const response = await apiFetch(`/food-items/user/${userId}`);
             const data = await response.json();
             if (data.success) {
                 setFoodItems(data.data);
@@ -82,7 +81,7 @@ export default function StatisticsScreen() {
 
     const loadStatistics = async (userId: number) => {
         try {
-            const response = await fetch(apiUrl(`/food-items/user/${userId}/statistics`));
+            const response = await apiFetch(`/food-items/user/${userId}/statistics`);
             const data = await response.json();
             if (data.success) {
                 setStatistics(data.data);
@@ -258,7 +257,7 @@ export default function StatisticsScreen() {
                 imageUrl: editFormData.image_url.trim() || null,
             };
 
-            const response = await fetch(apiUrl(`/food-items/${selectedItem.id}`), {
+            const response = await apiFetch(`/food-items/${selectedItem.id}`, {
                 method: 'PUT',
                 headers: {
                     'Content-Type': 'application/json',
@@ -295,7 +294,7 @@ export default function StatisticsScreen() {
                     style: 'destructive',
                     onPress: async () => {
                         try {
-                            const response = await fetch(apiUrl(`/food-items/${selectedItem.id}?userId=${user.id}`), {
+                            const response = await apiFetch(`/food-items/${selectedItem.id}?userId=${user.id}`, {
                                 method: 'DELETE',
                             });
 
@@ -5,7 +5,7 @@ import { Feather } from '@expo/vector-icons';
 import { useRouter } from 'expo-router';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import * as ImagePicker from 'expo-image-picker';
-import { apiUrl } from '@/constants/api';
+import { apiFetch, apiUrl } from '@/constants/api';
 
 export default function AccountScreen() {
     const [user, setUser] = useState<any>(null);
@@ -78,7 +78,7 @@ export default function AccountScreen() {
         formData.append('userId', user.id.toString());
 
         try {
-            const response = await fetch(apiUrl('/users/upload-avatar'), {
+            const response = await apiFetch('/users/upload-avatar', {
                 method: 'POST',
                 body: formData,
             });
@@ -123,7 +123,7 @@ export default function AccountScreen() {
                 updateData.newPassword = form.newPassword;
             }
 
-            const response = await fetch(apiUrl('/users/update'), {
+            const response = await apiFetch('/users/update', {
                 method: 'PUT',
                 headers: {
                     'Content-Type': 'application/json',
@@ -176,7 +176,7 @@ export default function AccountScreen() {
                     <View style={styles.avatarContainer}>
                         {selectedImageUri || user?.avatarUrl ? (
                             <Image
-                                source={{ uri: selectedImageUri || apiUrl(user.avatarUrl) }}
+                                source={{ uri: selectedImageUri || apiUrl(`${user.avatarUrl}?size=256`) }}
                                 style={styles.avatarImage}
                             />
                         ) : (
@@ -5,7 +5,7 @@ import { Feather } from '@expo/vector-icons';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 
 interface FoodItem {
     id: number;
@@ -14,6 +14,7 @@ interface FoodItem {
     quantity: number;
     unit: string;
     minQuantity: number | null;
+    version: number;
 }
 
 export default function FoodSettingsScreen() {
@@ -47,7 +48,7 @@ export default function FoodSettingsScreen() {
 
     const loadFoodItems = async (userId: number) => {
         try {
-            const response = await fetch(apiUrl(`/food-items/user/${userId}`));
+            const response = await apiFetch(`/food-items/user/${userId}`);
             const data = await response.json();
             if (data.success) {
                 setFoodItems(data.data);
@@ -70,31 +71,33 @@ export default function FoodSettingsScreen() {
         }
 
         try {
-            console.log('请求API:', apiUrl(`/food-items/${item.id}/min-quantity`));
-            console.log('请求体:', JSON.stringify({
-                userId: user.id,
-                minQuantity: minQuantity
-            }));
-            
-            const response = await fetch(apiUrl(`/food-items/${item.id}/min-quantity`), {
-                method: 'PUT',
+            // 只提交保底数量，带上读到的版本号，避免覆盖其他人同时做的修改
+            const response = await apiFetch(`/food-items/${item.id}`, {
+                method: 'PATCH',
                 headers: {
                     'Content-Type': 'application/json',
                 },
                 body: JSON.stringify({
                     userId: user.id,
+                    version: item.version,
                     minQuantity: minQuantity
                 }),
             });
 
-            console.log('响应状态:', response.status);
             const data = await response.json();
-            console.log('响应数据:', data);
+
+            if (response.status === 409) {
+                Alert.alert('提示', '该食材已被修改，已为你刷新最新数据');
+                setEditingId(null);
+                setEditValue('');
+                loadFoodItems(user.id);
+                return;
+            }
 
             if (data.success) {
                 setFoodItems(prev => prev.map(food =>
                     food.id === item.id
-                        ? { ...food, minQuantity: minQuantity }
+                        ? { ...food, ...data.data }
                         : food
                 ));
                 setEditingId(null);
@@ -1,8 +1,7 @@
 import React, { useState } from 'react';
 import { View, Text, TextInput, TouchableOpacity, StyleSheet, Alert } from 'react-native';
 import { useRouter } from 'expo-router';
-import AsyncStorage from '@react-native-async-storage/async-storage';
-import { apiUrl } from '@/constants/api';
+import { apiUrl, saveSession } from '@/constants/api';
 
 export default function LoginScreen() {
     const [account, setAccount] = useState('');
@@ -33,7 +32,7 @@ export default function LoginScreen() {
 
             const data = await response.json();
             if (data.success) {
-                await AsyncStorage.setItem('user', JSON.stringify(data.user));
+                await saveSession(data.user, data.token);
                 router.replace('/(tabs)');
             } else {
                 Alert.alert('登录失败', data.message || '请稍后重试');
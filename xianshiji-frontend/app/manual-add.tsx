@@ -5,7 +5,7 @@ import { useNavigation } from '@react-navigation/native';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
 import AsyncStorage from '@react-native-async-storage/async-storage';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 
 export default function ManualAddScreen() {
   const router = useRouter();
@@ -128,7 +128,7 @@ export default function ManualAddScreen() {
       };
 
       // Make API call to add food item
-      const response = await fetch(apiUrl('/food-items'), {
+      const response = await apiFetch('/food-items', {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
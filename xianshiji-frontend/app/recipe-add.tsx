@@ -4,7 +4,7 @@ import { useRouter } from 'expo-router';
 import { useNavigation } from '@react-navigation/native';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 
 export default function RecipeAddScreen() {
@@ -123,7 +123,7 @@ export default function RecipeAddScreen() {
       };
 
       // API调用
-      const response = await fetch(apiUrl('/recipes'), {
+      const response = await apiFetch('/recipes', {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
@@ -3,9 +3,15 @@ import { View, Text, StyleSheet, ScrollView, Image } from 'react-native';
 import { useLocalSearchParams, useRouter } from 'expo-router';
 import { useNavigation } from '@react-navigation/native';
 import { Feather } from '@expo/vector-icons';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 
+interface RecipeIngredient {
+    id: number;
+    ingredientName: string;
+    amount?: string;
+}
+
 interface Recipe {
     id: number;
     name: string;
@@ -17,6 +23,7 @@ interface Recipe {
     cookTime?: number;
     difficulty?: string;
     servings?: number;
+    ingredients?: RecipeIngredient[];
 }
 
 export default function RecipeDetailScreen() {
@@ -50,9 +57,8 @@ export default function RecipeDetailScreen() {
         
         const loadRecipeDetail = async () => {
             try {
-                // 加载食谱基本信息
-                const recipeUrl = apiUrl(`/recipes/${id}`);
-                const recipeResponse = await fetch(recipeUrl);
+                // 食谱和配料一次请求加载
+                const recipeResponse = await apiFetch(`/recipes/${id}/detail`);
                 const recipeData = await recipeResponse.json();
                 
                 if (recipeData.success) {
@@ -147,6 +153,19 @@ export default function RecipeDetailScreen() {
                 </View>
             )}
 
+            {/* 配料 */}
+            {recipe.ingredients && recipe.ingredients.length > 0 && (
+                <View style={styles.sectionContainer}>
+                    <Text style={styles.sectionTitle}>配料</Text>
+                    {recipe.ingredients.map((ingredient) => (
+                        <View key={ingredient.id} style={styles.ingredientItem}>
+                            <Text style={styles.ingredientName}>{ingredient.ingredientName}</Text>
+                            {ingredient.amount && <Text style={styles.ingredientAmount}>{ingredient.amount}</Text>}
+                        </View>
+                    ))}
+                </View>
+            )}
+
             {/* 烹饪步骤 */}
             {recipe.steps && (
                 <View style={styles.sectionContainer}>
@@ -253,6 +272,19 @@ const styles = StyleSheet.create({
         color: '#666',
         lineHeight: 20,
     },
+    ingredientItem: {
+        flexDirection: 'row',
+        justifyContent: 'space-between',
+        paddingVertical: 6,
+    },
+    ingredientName: {
+        fontSize: 14,
+        color: '#333',
+    },
+    ingredientAmount: {
+        fontSize: 14,
+        color: '#666',
+    },
     stepsContainer: {
         gap: 16,
     },
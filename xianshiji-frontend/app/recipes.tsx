@@ -6,15 +6,13 @@ import { useNavigation } from '@react-navigation/native';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ThemedText } from '@/components/themed-text';
 import { ThemedView } from '@/components/themed-view';
-import { apiUrl } from '@/constants/api';
+import { apiFetch } from '@/constants/api';
 
 interface Recipe {
     id: number;
     name: string;
     imageUrl?: string;
     cuisineType: string;
-    description?: string;
-    steps?: string;
 }
 
 export default function RecipesScreen() {
@@ -57,8 +55,7 @@ export default function RecipesScreen() {
 
     const loadRecipes = async () => {
         try {
-            const url = apiUrl('/recipes');
-            const response = await fetch(url);
+            const response = await apiFetch('/recipes');
             const data = await response.json();
             if (data.success) {
                 setRecipes(data.data);
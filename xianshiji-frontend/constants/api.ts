@@ -1,3 +1,6 @@
+import AsyncStorage from '@react-native-async-storage/async-storage';
+import { router } from 'expo-router';
+
 // API base URL for backend services.
 // Prefer configuring via EXPO_PUBLIC_API_BASE_URL to align with Expo's env support.
 // For mobile, use computer's IP instead of localhost
@@ -6,3 +9,33 @@ export const API_BASE_URL =
   'http://172.20.10.3:8080'; // Use computer's IP for mobile access
 
 export const apiUrl = (path: string) => `${API_BASE_URL}${path}`;
+
+// Token returned by /users/login, sent as "Authorization: Bearer <token>" on every API call.
+export const TOKEN_KEY = 'token';
+
+// fetch() against the backend with the stored token attached.
+// A 401 means the token is missing, expired or signed by another key: drop the session and go to login.
+export const apiFetch = async (path: string, init: RequestInit = {}) => {
+  const token = await AsyncStorage.getItem(TOKEN_KEY);
+  const headers: Record<string, string> = { ...(init.headers as Record<string, string> | undefined) };
+  if (token) {
+    headers.Authorization = `Bearer ${token}`;
+  }
+  const response = await fetch(apiUrl(path), { ...init, headers });
+  if (response.status === 401) {
+    await clearSession();
+    router.replace('/login');
+  }
+  return response;
+};
+
+export const saveSession = async (user: unknown, token?: string) => {
+  await AsyncStorage.setItem('user', JSON.stringify(user));
+  if (token) {
+    await AsyncStorage.setItem(TOKEN_KEY, token);
+  }
+};
+
+export const clearSession = async () => {
+  await AsyncStorage.multiRemove(['user', TOKEN_KEY]);
+};
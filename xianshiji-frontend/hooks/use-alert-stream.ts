@@ -0,0 +1,112 @@
+import { useEffect, useRef } from 'react';
+import { apiFetch, apiUrl } from '@/constants/api';
+
+const RECONNECT_DELAY_MS = 5000;
+
+export interface AlertEvent {
+  itemId: number;
+  familyId: number | null;
+  name: string;
+  oldStatus: string | null;
+  newStatus: string;
+  expiryDate: string | null;
+}
+
+/**
+ * Subscribes to the server's food status event stream and calls onAlert for every change.
+ * React Native has no EventSource, so the SSE response is read incrementally over XMLHttpRequest.
+ * Each (re)connect fetches a fresh short-lived stream token; Last-Event-ID resumes after a drop.
+ */
+export function useAlertStream(userId: number | undefined, onAlert: (event: AlertEvent) => void) {
+  const onAlertRef = useRef(onAlert);
+  onAlertRef.current = onAlert;
+
+  useEffect(() => {
+    if (!userId) return;
+
+    let stopped = false;
+    let request: XMLHttpRequest | null = null;
+    let retryTimer: ReturnType<typeof setTimeout> | null = null;
+    let lastEventId: string | null = null;
+
+    const scheduleReconnect = () => {
+      if (!stopped) {
+        retryTimer = setTimeout(connect, RECONNECT_DELAY_MS);
+      }
+    };
+
+    // 处理完整的事件块，返回末尾尚未收完的部分
+    const consume = (buffer: string) => {
+      const blocks = buffer.split(/\r?\n\r?\n/);
+      const rest = blocks.pop() ?? '';
+      for (const block of blocks) {
+        let id: string | null = null;
+        let name = 'message';
+        const data: string[] = [];
+        for (const line of block.split(/\r?\n/)) {
+          if (line.startsWith(':')) continue; // 心跳注释
+          const colon = line.indexOf(':');
+          const field = colon < 0 ? line : line.slice(0, colon);
+          const value = colon < 0 ? '' : line.slice(colon + 1).replace(/^ /, '');
+          if (field === 'id') id = value;
+          else if (field === 'event') name = value;
+          else if (field === 'data') data.push(value);
+        }
+        if (id) lastEventId = id;
+        if (name === 'status' && data.length > 0) {
+          try {
+            onAlertRef.current(JSON.parse(data.join('\n')));
+          } catch (error) {
+            console.error('解析提醒事件失败:', error);
+          }
+        }
+      }
+      return rest;
+    };
+
+    const connect = async () => {
+      try {
+        const response = await apiFetch(`/food-items/user/${userId}/alerts/stream-token`, { method: 'POST' });
+        const data = await response.json();
+        if (stopped) return;
+        if (!data.success) {
+          scheduleReconnect();
+          return;
+        }
+
+        const xhr = new XMLHttpRequest();
+        request = xhr;
+        let offset = 0;
+        let buffer = '';
+        xhr.open('GET', apiUrl(`/food-items/user/${userId}/alerts/stream?access_token=${encodeURIComponent(data.data)}`));
+        xhr.setRequestHeader('Accept', 'text/event-stream');
+        if (lastEventId) {
+          xhr.setRequestHeader('Last-Event-ID', lastEventId);
+        }
+        xhr.onreadystatechange = () => {
+          if (xhr.readyState >= XMLHttpRequest.LOADING) {
+            const text = xhr.responseText;
+            buffer = consume(buffer + text.slice(offset));
+            offset = text.length;
+          }
+          if (xhr.readyState === XMLHttpRequest.DONE) {
+            if (request === xhr) request = null;
+            scheduleReconnect();
+          }
+        };
+        xhr.send();
+      } catch (error) {
+        console.error('连接提醒事件流失败:', error);
+        scheduleReconnect();
+      }
+    };
+
+    connect();
+
+    return () => {
+      stopped = true;
+      if (retryTimer) clearTimeout(retryTimer);
+      request?.abort();
+    };
+  }, [userId]);
+}